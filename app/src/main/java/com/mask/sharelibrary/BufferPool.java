@@ -0,0 +1,161 @@
+package com.mask.sharelibrary;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * 缓冲区池(多个复制共用，总内存有上限)
+ * <p>
+ * 1. 缓冲区大小按2的幂分级(minSize ~ maxSize)，每级单独缓存空闲的缓冲区；
+ * 2. 已分配的缓冲区(使用中 + 空闲)总大小不超过 maxBytes，超出时先释放其他级别的空闲缓冲区，
+ * 仍不够时返回更小的缓冲区，都没有时等待其他复制归还；
+ * 3. 返回的缓冲区可能比请求的小，使用 buffer.length 获取实际大小。
+ */
+final class BufferPool {
+
+    private final int minSize;
+    private final int maxSize;
+    private final long maxBytes;
+
+    /**
+     * 每级的空闲缓冲区(下标0为 minSize)
+     */
+    private final ArrayDeque<byte[]>[] freeLists;
+
+    /**
+     * 已分配的总大小(使用中 + 空闲)
+     */
+    private long allocatedBytes;
+
+    /**
+     * 空闲的总大小
+     */
+    private long freeBytes;
+
+    /**
+     * @param minSize  最小缓冲区大小(2的幂)
+     * @param maxSize  最大缓冲区大小(2的幂)
+     * @param maxBytes 总内存上限(不小于 maxSize)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BufferPool(int minSize, int maxSize, long maxBytes) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maxBytes = Math.max(maxBytes, maxSize);
+        int count = Integer.numberOfTrailingZeros(maxSize) - Integer.numberOfTrailingZeros(minSize) + 1;
+        freeLists = new ArrayDeque[count];
+        for (int i = 0; i < count; i++) {
+            freeLists[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * 获取 分级后的大小(向上取2的幂，限制在 minSize ~ maxSize 之间)
+     *
+     * @param size size
+     * @return int
+     */
+    int getClassSize(int size) {
+        if (size <= minSize) {
+            return minSize;
+        }
+        if (size >= maxSize) {
+            return maxSize;
+        }
+        int classSize = Integer.highestOneBit(size);
+        return classSize == size ? size : classSize << 1;
+    }
+
+    /**
+     * 获取 缓冲区
+     *
+     * @param size 期望的大小(实际大小可能更小)
+     * @return byte[]
+     * @throws InterruptedIOException 等待归还时被中断
+     */
+    synchronized byte[] obtain(int size) throws InterruptedIOException {
+        size = getClassSize(size);
+        while (true) {
+            // 1. 同级的空闲缓冲区
+            byte[] buffer = freeLists[indexOf(size)].pollFirst();
+            if (buffer != null) {
+                freeBytes -= buffer.length;
+                return buffer;
+            }
+
+            // 2. 释放其他级别的空闲缓冲区后分配
+            if (maxBytes - allocatedBytes + freeBytes >= size) {
+                trim(size);
+                allocatedBytes += size;
+                return new byte[size];
+            }
+
+            // 3. 更小的空闲缓冲区，或剩余内存能分配的更小的缓冲区
+            for (int classSize = size >> 1; classSize >= minSize; classSize >>= 1) {
+                buffer = freeLists[indexOf(classSize)].pollFirst();
+                if (buffer != null) {
+                    freeBytes -= buffer.length;
+                    return buffer;
+                }
+                if (maxBytes - allocatedBytes >= classSize) {
+                    allocatedBytes += classSize;
+                    return new byte[classSize];
+                }
+            }
+
+            // 4. 全部在使用中，等待归还
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * 归还 缓冲区
+     *
+     * @param buffer obtain 获取的缓冲区(可为null)
+     */
+    synchronized void release(byte[] buffer) {
+        if (buffer == null || buffer.length != getClassSize(buffer.length)) {
+            return;
+        }
+        freeLists[indexOf(buffer.length)].addFirst(buffer);
+        freeBytes += buffer.length;
+        notifyAll();
+    }
+
+    /**
+     * 获取 已分配的总大小(使用中 + 空闲)
+     *
+     * @return long
+     */
+    synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * 释放空闲缓冲区(从大到小)，直到可以再分配 size
+     *
+     * @param size size
+     */
+    private void trim(int size) {
+        for (int i = freeLists.length - 1; i >= 0 && maxBytes - allocatedBytes < size; i--) {
+            while (maxBytes - allocatedBytes < size) {
+                byte[] buffer = freeLists[i].pollFirst();
+                if (buffer == null) {
+                    break;
+                }
+                freeBytes -= buffer.length;
+                allocatedBytes -= buffer.length;
+            }
+        }
+    }
+
+    private int indexOf(int classSize) {
+        return Integer.numberOfTrailingZeros(classSize) - Integer.numberOfTrailingZeros(minSize);
+    }
+
+}
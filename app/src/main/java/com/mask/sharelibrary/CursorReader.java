@@ -0,0 +1,210 @@
+package com.mask.sharelibrary;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+
+import java.io.Closeable;
+
+/**
+ * Cursor读取
+ * <p>
+ * 1. 创建时按 projection 一次性获取列索引，之后按 projection 中的位置读取，不再每行调用 getColumnIndex；
+ * 2. 提供基本类型的读取方法，列不存在或为null时返回默认值；
+ * 3. 支持逐行读取到调用方复用的 Record，或批量读取到基本类型数组(列式)，遍历大量行时不产生额外的对象。
+ */
+public class CursorReader implements Closeable {
+
+    /**
+     * 逐行读取的记录(每行都读取到同一个实例)
+     */
+    public interface Record {
+        void read(CursorReader reader);
+    }
+
+    /**
+     * 逐行回调
+     *
+     * @param <T> Record
+     */
+    public interface RowCallback<T> {
+        /**
+         * @param record record(下一行会覆盖，需要保留时复制)
+         * @return boolean 是否继续
+         */
+        boolean onRow(T record);
+    }
+
+    private final Cursor cursor;
+    private final int[] columnIndexes;
+
+    private CursorReader(Cursor cursor, String[] projection) {
+        this.cursor = cursor;
+        this.columnIndexes = new int[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            columnIndexes[i] = cursor.getColumnIndex(projection[i]);
+        }
+    }
+
+    /**
+     * 获取 CursorReader
+     *
+     * @param cursor     cursor(可为null)
+     * @param projection 要读取的列(读取时使用在 projection 中的位置)
+     * @return CursorReader(cursor为null时返回null)
+     */
+    public static CursorReader wrap(Cursor cursor, String[] projection) {
+        if (cursor == null) {
+            return null;
+        }
+        return new CursorReader(cursor, projection);
+    }
+
+    public Cursor getCursor() {
+        return cursor;
+    }
+
+    public int getCount() {
+        return cursor.getCount();
+    }
+
+    public boolean moveToNext() {
+        return cursor.moveToNext();
+    }
+
+    /**
+     * 是否有该列
+     *
+     * @param column 在 projection 中的位置
+     * @return boolean
+     */
+    public boolean hasColumn(int column) {
+        return columnIndexes[column] >= 0;
+    }
+
+    /**
+     * 是否为null(列不存在也认为是null)
+     *
+     * @param column 在 projection 中的位置
+     * @return boolean
+     */
+    public boolean isNull(int column) {
+        int index = columnIndexes[column];
+        return index < 0 || cursor.isNull(index);
+    }
+
+    public long getLong(int column, long defaultValue) {
+        int index = columnIndexes[column];
+        if (index < 0 || cursor.isNull(index)) {
+            return defaultValue;
+        }
+        return cursor.getLong(index);
+    }
+
+    public long getLong(int column) {
+        return getLong(column, 0);
+    }
+
+    public int getInt(int column, int defaultValue) {
+        int index = columnIndexes[column];
+        if (index < 0 || cursor.isNull(index)) {
+            return defaultValue;
+        }
+        return cursor.getInt(index);
+    }
+
+    public int getInt(int column) {
+        return getInt(column, 0);
+    }
+
+    /**
+     * 获取 String
+     *
+     * @param column 在 projection 中的位置
+     * @return String(列不存在返回null)
+     */
+    public String getString(int column) {
+        int index = columnIndexes[column];
+        return index < 0 ? null : cursor.getString(index);
+    }
+
+    /**
+     * 复制字符串到复用的缓冲区(不创建String)
+     *
+     * @param column 在 projection 中的位置
+     * @param buffer buffer
+     * @return int 字符数(列不存在或为null时为0)
+     */
+    public int getChars(int column, CharArrayBuffer buffer) {
+        int index = columnIndexes[column];
+        if (index < 0) {
+            buffer.sizeCopied = 0;
+        } else {
+            cursor.copyStringToBuffer(index, buffer);
+        }
+        return buffer.sizeCopied;
+    }
+
+    /**
+     * 逐行读取到同一个 Record
+     *
+     * @param record   record
+     * @param callback callback
+     * @param <T>      Record
+     * @return int 读取的行数
+     */
+    public <T extends Record> int forEach(T record, RowCallback<? super T> callback) {
+        int count = 0;
+        while (cursor.moveToNext()) {
+            record.read(this);
+            count++;
+            if (!callback.onRow(record)) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 批量读取 long 列(列式，从下一行开始)
+     *
+     * @param columns  要读取的列(在 projection 中的位置)
+     * @param values   values[i] 对应 columns[i]，每行写入 values[i][offset + row]
+     * @param offset   offset
+     * @param maxCount 最多读取的行数
+     * @return int 读取的行数
+     */
+    public int readLongs(int[] columns, long[][] values, int offset, int maxCount) {
+        int count = 0;
+        while (count < maxCount && cursor.moveToNext()) {
+            for (int i = 0; i < columns.length; i++) {
+                values[i][offset + count] = getLong(columns[i]);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 批量读取单个 long 列(列式，从下一行开始)
+     *
+     * @param column   在 projection 中的位置
+     * @param values   values
+     * @param offset   offset
+     * @param maxCount 最多读取的行数
+     * @return int 读取的行数
+     */
+    public int readLongs(int column, long[] values, int offset, int maxCount) {
+        int count = 0;
+        while (count < maxCount && cursor.moveToNext()) {
+            values[offset + count] = getLong(column);
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+    }
+
+}
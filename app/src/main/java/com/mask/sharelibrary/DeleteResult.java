@@ -0,0 +1,76 @@
+package com.mask.sharelibrary;
+
+import android.net.Uri;
+
+/**
+ * 批量删除 的单个Uri结果
+ */
+public class DeleteResult {
+
+    /**
+     * 已删除
+     */
+    public static final int STATUS_DELETED = 0;
+    /**
+     * 不存在(或没有读取权限，查询不到)
+     */
+    public static final int STATUS_NOT_FOUND = 1;
+    /**
+     * 需要用户授权(其他App的文件，见 FileUtils.createDeleteRequest)
+     */
+    public static final int STATUS_NEEDS_PERMISSION = 2;
+    /**
+     * 失败
+     */
+    public static final int STATUS_FAILED = 3;
+
+    private final Uri uri;
+    private final int status;
+    private final Exception error;
+
+    DeleteResult(Uri uri, int status, Exception error) {
+        this.uri = uri;
+        this.status = status;
+        this.error = error;
+    }
+
+    public Uri getUri() {
+        return uri;
+    }
+
+    /**
+     * 获取 状态
+     *
+     * @return int STATUS_DELETED、STATUS_NOT_FOUND、STATUS_NEEDS_PERMISSION、STATUS_FAILED
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * 获取 失败原因
+     *
+     * @return Exception(可为null；Android 10 需要授权时为 RecoverableSecurityException)
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isDeleted() {
+        return status == STATUS_DELETED;
+    }
+
+    public boolean isNeedsPermission() {
+        return status == STATUS_NEEDS_PERMISSION;
+    }
+
+    @Override
+    public String toString() {
+        return "DeleteResult{" +
+                "uri=" + uri +
+                ", status=" + status +
+                ", error=" + error +
+                '}';
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.mask.sharelibrary;
+
+import android.net.Uri;
+
+import java.io.File;
+
+/**
+ * 导出任务队列 的单个任务(查询时的快照)
+ */
+public class ExportJob {
+
+    /**
+     * 复制文件到外部
+     */
+    public static final int TYPE_EXPORT = 0;
+    /**
+     * 删除Uri
+     */
+    public static final int TYPE_DELETE = 1;
+
+    /**
+     * 等待执行(包括等待重试)
+     */
+    public static final int STATE_PENDING = 0;
+    /**
+     * 执行中
+     */
+    public static final int STATE_RUNNING = 1;
+    /**
+     * 成功
+     */
+    public static final int STATE_SUCCEEDED = 2;
+    /**
+     * 失败(重试次数已用完，或不可重试)
+     */
+    public static final int STATE_FAILED = 3;
+    /**
+     * 已取消
+     */
+    public static final int STATE_CANCELED = 4;
+
+    private final long id;
+    private final int type;
+    private final int state;
+    private final File file;
+    private final String dirName;
+    private final Uri uri;
+    private final int attempts;
+    private final long bytes;
+    private final long totalBytes;
+    private final String error;
+    private final long nextRunTime;
+
+    ExportJob(long id, int type, int state, File file, String dirName, Uri uri,
+              int attempts, long bytes, long totalBytes, String error, long nextRunTime) {
+        this.id = id;
+        this.type = type;
+        this.state = state;
+        this.file = file;
+        this.dirName = dirName;
+        this.uri = uri;
+        this.attempts = attempts;
+        this.bytes = bytes;
+        this.totalBytes = totalBytes;
+        this.error = error;
+        this.nextRunTime = nextRunTime;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * 获取 任务类型
+     *
+     * @return int TYPE_EXPORT、TYPE_DELETE
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * 获取 状态
+     *
+     * @return int STATE_PENDING、STATE_RUNNING、STATE_SUCCEEDED、STATE_FAILED、STATE_CANCELED
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * 获取 源文件
+     *
+     * @return File(TYPE_DELETE 为null)
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public String getDirName() {
+        return dirName;
+    }
+
+    /**
+     * 获取 Uri
+     *
+     * @return Uri(TYPE_EXPORT 成功前为null，TYPE_DELETE 为要删除的Uri)
+     */
+    public Uri getUri() {
+        return uri;
+    }
+
+    /**
+     * 获取 已执行次数(包括当前正在执行的)
+     *
+     * @return int
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * 获取 已复制的字节数(只有执行中的 TYPE_EXPORT 有效)
+     *
+     * @return long
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 获取 总字节数(加入队列时的文件大小)
+     *
+     * @return long
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * 获取 最后一次失败的原因
+     *
+     * @return String(没有失败为null)
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * 获取 下次执行时间(System.currentTimeMillis)
+     *
+     * @return long
+     */
+    public long getNextRunTime() {
+        return nextRunTime;
+    }
+
+    public boolean isFinished() {
+        return state == STATE_SUCCEEDED || state == STATE_FAILED || state == STATE_CANCELED;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportJob{" +
+                "id=" + id +
+                ", type=" + type +
+                ", state=" + state +
+                ", file=" + file +
+                ", uri=" + uri +
+                ", attempts=" + attempts +
+                ", bytes=" + bytes + "/" + totalBytes +
+                ", error=" + error +
+                '}';
+    }
+
+}
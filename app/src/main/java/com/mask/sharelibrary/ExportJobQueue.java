@@ -0,0 +1,817 @@
+package com.mask.sharelibrary;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 导出任务队列(持久化，进程被杀死后可以继续)
+ * <p>
+ * 1. 任务(复制文件到外部、删除Uri)先写入数据库再执行，每次状态变化都写入数据库；
+ * 2. 最多同时执行 MAX_RUNNING 个任务，失败后按指数退避重试，超过 MAX_ATTEMPTS 次后标记为失败；
+ * 3. 已到时间的删除任务合并为一批(最多 DELETE_BATCH_SIZE 个)，调用一次 FileUtils.delete，只占用一个执行位置；
+ * 4. 第一次调度时，把上次进程中执行到一半的任务(RUNNING)恢复为等待执行(执行次数已用完的标记为失败)，大文件通过 ResumableExporter 续传，
+ * 并删除超过 FINISHED_EXPIRE_MILLIS 的已完成任务；
+ * 5. 状态查询(getStatus)和状态回调(Listener)合并为每 STATUS_INTERVAL_MILLIS 最多一次，进度保存在内存中，
+ * UI 不需要轮询 MediaStore 或数据库。
+ * <p>
+ * 注意：
+ * 数据库操作，不要在主线程调用
+ */
+public class ExportJobQueue extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "export_job_queue.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String TABLE_JOB = "job";
+
+    private static final String COLUMN_ID = "_id";
+    private static final String COLUMN_TYPE = "type";
+    private static final String COLUMN_STATE = "state";
+    private static final String COLUMN_PATH = "path";
+    private static final String COLUMN_DIR_NAME = "dir_name";
+    private static final String COLUMN_URI = "uri";
+    private static final String COLUMN_ATTEMPTS = "attempts";
+    private static final String COLUMN_TOTAL = "total";
+    private static final String COLUMN_ERROR = "error";
+    private static final String COLUMN_NEXT_RUN_TIME = "next_run_time";
+    private static final String COLUMN_CREATE_TIME = "create_time";
+
+    private static final String[] JOB_COLUMNS = new String[]{
+            COLUMN_ID, COLUMN_TYPE, COLUMN_STATE, COLUMN_PATH, COLUMN_DIR_NAME, COLUMN_URI,
+            COLUMN_ATTEMPTS, COLUMN_TOTAL, COLUMN_ERROR, COLUMN_NEXT_RUN_TIME,
+    };
+
+    /**
+     * 最多同时执行的任务数
+     */
+    private static final int MAX_RUNNING = 2;
+
+    /**
+     * 最多执行次数(包括第一次)
+     */
+    private static final int MAX_ATTEMPTS = 5;
+
+    /**
+     * 单批最多删除的任务数
+     */
+    private static final int DELETE_BATCH_SIZE = 100;
+
+    /**
+     * 重试间隔(第n次重试等待 BACKOFF_BASE_MILLIS * 2^(n-1)，不超过 BACKOFF_MAX_MILLIS)
+     */
+    private static final long BACKOFF_BASE_MILLIS = 5 * 1000;
+    private static final long BACKOFF_MAX_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * 已完成的任务的保留时间(按创建时间，之后在启动时自动删除)
+     */
+    private static final long FINISHED_EXPIRE_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+
+    /**
+     * 状态合并间隔
+     */
+    private static final long STATUS_INTERVAL_MILLIS = 500;
+
+    /**
+     * 大于该大小的文件使用 ResumableExporter(进程被杀死后从提交位置续传)
+     */
+    private static final long RESUMABLE_MIN_SIZE = 64 * 1024 * 1024;
+
+    private static volatile ExportJobQueue instance;
+
+    private final Context context;
+
+    /**
+     * 执行任务 + 调度/状态回调(多1个线程，任务全部在执行时也能调度和回调)
+     */
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * 执行中的任务id -> 取消信号(由 this 同步)
+     */
+    private final Map<Long, CancellationSignal> runningMap = new HashMap<>();
+
+    /**
+     * 执行中的任务id -> 已复制的字节数
+     */
+    private final Map<Long, Long> progressMap = new ConcurrentHashMap<>();
+
+    /**
+     * 任务id -> 单个任务的回调(只保存在内存中，进程被杀死后不再回调)
+     */
+    private final Map<Long, JobListener> jobListenerMap = new ConcurrentHashMap<>();
+
+    private final List<Listener> listenerList = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean statusScheduled = new AtomicBoolean();
+
+    private volatile Status cachedStatus;
+
+    /**
+     * 执行中的批次数(一个导出任务或一批删除任务，由 this 同步)
+     */
+    private int runningCount;
+
+    /**
+     * 是否已恢复上次进程中执行到一半的任务(由 this 同步)
+     */
+    private boolean resumed;
+
+    private ScheduledFuture<?> wakeUpFuture;
+
+    private final Runnable dispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatch();
+        }
+    };
+
+    private final Runnable statusRunnable = new Runnable() {
+        @Override
+        public void run() {
+            statusScheduled.set(false);
+            Status status = queryStatus();
+            for (Listener listener : listenerList) {
+                listener.onStatus(status);
+            }
+        }
+    };
+
+    private ExportJobQueue(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        this.context = context;
+        setWriteAheadLoggingEnabled(true);
+        executor = new ScheduledThreadPoolExecutor(MAX_RUNNING + 1, IoExecutors.newThreadFactory("ExportJobQueue"));
+    }
+
+    public static ExportJobQueue getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ExportJobQueue.class) {
+                if (instance == null) {
+                    instance = new ExportJobQueue(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_JOB + " ("
+                + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COLUMN_TYPE + " INTEGER NOT NULL, "
+                + COLUMN_STATE + " INTEGER NOT NULL, "
+                + COLUMN_PATH + " TEXT, "
+                + COLUMN_DIR_NAME + " TEXT, "
+                + COLUMN_URI + " TEXT, "
+                + COLUMN_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_TOTAL + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_ERROR + " TEXT, "
+                + COLUMN_NEXT_RUN_TIME + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_CREATE_TIME + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX job_state ON " + TABLE_JOB + " (" + COLUMN_STATE + ", " + COLUMN_NEXT_RUN_TIME + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_JOB);
+        onCreate(db);
+    }
+
+    /**
+     * 状态回调(在队列的线程回调，每 STATUS_INTERVAL_MILLIS 最多一次)
+     */
+    public interface Listener {
+
+        void onStatus(Status status);
+    }
+
+    public void addListener(Listener listener) {
+        listenerList.add(listener);
+        notifyChanged();
+    }
+
+    public void removeListener(Listener listener) {
+        listenerList.remove(listener);
+    }
+
+    /**
+     * 单个任务的回调(在队列的线程回调)
+     */
+    public interface JobListener {
+
+        /**
+         * 进度
+         *
+         * @param bytes 已复制的字节数
+         */
+        void onProgress(long bytes);
+
+        /**
+         * 任务结束(成功、失败、已取消，只回调一次)
+         * <p>
+         * 第一次执行失败时立即以 STATE_FAILED 回调，任务之后在后台重试，不再回调(调用方不需要等待重试)
+         *
+         * @param state ExportJob.STATE_SUCCEEDED/STATE_FAILED/STATE_CANCELED
+         * @param uri   uri(成功时为导出的Uri)
+         */
+        void onFinish(int state, Uri uri);
+    }
+
+    /**
+     * 开始执行(恢复上次进程中未完成的任务，App启动时调用)
+     */
+    public void start() {
+        executor.execute(dispatchRunnable);
+    }
+
+    /**
+     * 添加 复制文件到外部 任务
+     *
+     * @param file    file
+     * @param dirName 目录名(例如："/Pictures/WeChat"中的"WeChat")
+     * @return long 任务id(失败返回-1)
+     */
+    public long enqueueExport(File file, String dirName) {
+        return enqueueExport(file, dirName, null);
+    }
+
+    /**
+     * 添加 复制文件到外部 任务
+     *
+     * @param file     file
+     * @param dirName  目录名(例如："/Pictures/WeChat"中的"WeChat")
+     * @param listener 单个任务的回调(可为null)
+     * @return long 任务id(失败返回-1)
+     */
+    public long enqueueExport(File file, String dirName, JobListener listener) {
+        if (file == null) {
+            return -1;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TYPE, ExportJob.TYPE_EXPORT);
+        values.put(COLUMN_PATH, file.getAbsolutePath());
+        values.put(COLUMN_DIR_NAME, dirName);
+        values.put(COLUMN_TOTAL, file.length());
+        return enqueue(values, listener);
+    }
+
+    /**
+     * 添加 删除Uri 任务
+     * <p>
+     * 需要用户授权的Uri(其他App创建的)不重试，任务标记为失败，需要通过 FileUtils.requestDelete 处理
+     *
+     * @param uri uri
+     * @return long 任务id(失败返回-1)
+     */
+    public long enqueueDelete(Uri uri) {
+        if (uri == null) {
+            return -1;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_TYPE, ExportJob.TYPE_DELETE);
+        values.put(COLUMN_URI, uri.toString());
+        return enqueue(values, null);
+    }
+
+    private long enqueue(ContentValues values, JobListener listener) {
+        long time = System.currentTimeMillis();
+        values.put(COLUMN_STATE, ExportJob.STATE_PENDING);
+        values.put(COLUMN_NEXT_RUN_TIME, time);
+        values.put(COLUMN_CREATE_TIME, time);
+        long id;
+        synchronized (this) {// 与调度同步，任务开始执行前已添加回调
+            id = getWritableDatabase().insert(TABLE_JOB, null, values);
+            if (id != -1 && listener != null) {
+                jobListenerMap.put(id, listener);
+            }
+        }
+        if (id != -1) {
+            notifyChanged();
+            executor.execute(dispatchRunnable);
+        }
+        return id;
+    }
+
+    /**
+     * 取消任务(执行中的删除任务不能取消)
+     *
+     * @param id 任务id
+     * @return boolean 是否取消(已完成的任务返回false)
+     */
+    public boolean cancel(long id) {
+        synchronized (this) {
+            CancellationSignal cancellationSignal = runningMap.get(id);
+            if (cancellationSignal != null) {
+                cancellationSignal.cancel();// 执行结束后更新状态
+                return true;
+            }
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_STATE, ExportJob.STATE_CANCELED);
+            String selection = COLUMN_ID + "=? AND " + COLUMN_STATE + "=?";
+            String[] selectionArgs = new String[]{String.valueOf(id), String.valueOf(ExportJob.STATE_PENDING)};
+            if (getWritableDatabase().update(TABLE_JOB, values, selection, selectionArgs) <= 0) {
+                return false;
+            }
+        }
+        JobListener jobListener = jobListenerMap.remove(id);
+        if (jobListener != null) {
+            jobListener.onFinish(ExportJob.STATE_CANCELED, null);
+        }
+        notifyChanged();
+        return true;
+    }
+
+    /**
+     * 获取 任务
+     *
+     * @param id 任务id
+     * @return ExportJob(不存在返回null)
+     */
+    public ExportJob getJob(long id) {
+        String selection = COLUMN_ID + "=?";
+        String[] selectionArgs = new String[]{String.valueOf(id)};
+        try (Cursor cursor = getReadableDatabase().query(TABLE_JOB, JOB_COLUMNS, selection, selectionArgs, null, null, null)) {
+            if (cursor.moveToFirst()) {
+                return readJob(cursor);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 删除 已完成的任务(成功、失败、已取消)
+     *
+     * @return int 删除的任务数
+     */
+    public int removeFinished() {
+        return removeFinished(Long.MAX_VALUE);
+    }
+
+    /**
+     * 删除 指定时间之前创建的已完成的任务(成功、失败、已取消)
+     *
+     * @param createTime 创建时间(不包括)
+     * @return int 删除的任务数
+     */
+    private int removeFinished(long createTime) {
+        String selection = COLUMN_STATE + " IN (?,?,?) AND " + COLUMN_CREATE_TIME + "<?";
+        String[] selectionArgs = new String[]{String.valueOf(ExportJob.STATE_SUCCEEDED),
+                String.valueOf(ExportJob.STATE_FAILED), String.valueOf(ExportJob.STATE_CANCELED), String.valueOf(createTime)};
+        int count = getWritableDatabase().delete(TABLE_JOB, selection, selectionArgs);
+        if (count > 0) {
+            notifyChanged();
+        }
+        return count;
+    }
+
+    /**
+     * 获取 队列状态(距离上次查询不到 STATUS_INTERVAL_MILLIS 时直接返回上次的结果)
+     *
+     * @return Status
+     */
+    public Status getStatus() {
+        Status status = cachedStatus;
+        if (status != null && SystemClock.elapsedRealtime() - status.time < STATUS_INTERVAL_MILLIS) {
+            return status;
+        }
+        return queryStatus();
+    }
+
+    private Status queryStatus() {
+        int[] counts = new int[ExportJob.STATE_CANCELED + 1];
+        long totalBytes = 0;
+        String sql = "SELECT " + COLUMN_STATE + ", COUNT(*), SUM(" + COLUMN_TOTAL + ") FROM " + TABLE_JOB + " GROUP BY " + COLUMN_STATE;
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                int state = cursor.getInt(0);
+                if (state < 0 || state >= counts.length) {
+                    continue;
+                }
+                counts[state] = cursor.getInt(1);
+                if (state == ExportJob.STATE_PENDING || state == ExportJob.STATE_RUNNING) {
+                    totalBytes += cursor.getLong(2);
+                }
+            }
+        }
+        long bytes = 0;
+        for (long value : progressMap.values()) {
+            bytes += value;
+        }
+        Status status = new Status(counts, bytes, totalBytes, SystemClock.elapsedRealtime());
+        cachedStatus = status;
+        return status;
+    }
+
+    /**
+     * 状态变化(合并为每 STATUS_INTERVAL_MILLIS 最多回调一次)
+     */
+    private void notifyChanged() {
+        if (listenerList.isEmpty()) {
+            return;
+        }
+        if (statusScheduled.compareAndSet(false, true)) {
+            executor.schedule(statusRunnable, STATUS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 调度：执行已到时间的任务，没有可执行的任务时在最早的重试时间唤醒
+     */
+    private synchronized void dispatch() {
+        SQLiteDatabase db = getWritableDatabase();
+        if (!resumed) {
+            // 上次进程中执行到一半的任务：执行次数已用完的标记为失败，其他的恢复为等待执行
+            String runningState = String.valueOf(ExportJob.STATE_RUNNING);
+            ContentValues failedValues = new ContentValues();
+            failedValues.put(COLUMN_STATE, ExportJob.STATE_FAILED);
+            failedValues.put(COLUMN_ERROR, "interrupted");
+            int failedCount = db.update(TABLE_JOB, failedValues, COLUMN_STATE + "=? AND " + COLUMN_ATTEMPTS + ">=?",
+                    new String[]{runningState, String.valueOf(MAX_ATTEMPTS)});
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_STATE, ExportJob.STATE_PENDING);
+            int count = db.update(TABLE_JOB, values, COLUMN_STATE + "=?", new String[]{runningState});
+            if (count > 0 || failedCount > 0) {
+                LogUtil.i("ExportJobQueue resume: " + count + ", failed: " + failedCount);
+            }
+
+            // 已过期的已完成任务
+            int removeCount = removeFinished(System.currentTimeMillis() - FINISHED_EXPIRE_MILLIS);
+            if (removeCount > 0) {
+                LogUtil.i("ExportJobQueue remove finished: " + removeCount);
+            }
+            resumed = true;
+        }
+        if (wakeUpFuture != null) {
+            wakeUpFuture.cancel(false);
+            wakeUpFuture = null;
+        }
+
+        long time = System.currentTimeMillis();
+        String[] pendingArgs = new String[]{String.valueOf(ExportJob.STATE_PENDING)};
+        while (runningCount < MAX_RUNNING) {
+            ExportJob job = null;
+            String selection = COLUMN_STATE + "=? AND " + COLUMN_NEXT_RUN_TIME + "<=?";
+            String[] selectionArgs = new String[]{String.valueOf(ExportJob.STATE_PENDING), String.valueOf(time)};
+            String orderBy = COLUMN_NEXT_RUN_TIME + ", " + COLUMN_ID;
+            try (Cursor cursor = db.query(TABLE_JOB, JOB_COLUMNS, selection, selectionArgs, null, null, orderBy, "1")) {
+                if (cursor.moveToFirst()) {
+                    job = readJob(cursor);
+                }
+            }
+            if (job == null) {
+                break;
+            }
+
+            runningCount++;
+            if (job.getType() == ExportJob.TYPE_DELETE) {
+                List<ExportJob> jobList = queryDueDeleteJobs(db, time);
+                markRunning(db, jobList);
+                executor.execute(newDeleteRunnable(jobList));
+                continue;
+            }
+
+            markRunning(db, Collections.singletonList(job));
+            CancellationSignal cancellationSignal = new CancellationSignal();
+            runningMap.put(job.getId(), cancellationSignal);
+            executor.execute(newJobRunnable(job, job.getAttempts() + 1, cancellationSignal));
+        }
+        notifyChanged();
+        if (runningCount >= MAX_RUNNING) {
+            return;// 任务结束后会重新调度
+        }
+
+        // 等待重试的任务
+        String sql = "SELECT MIN(" + COLUMN_NEXT_RUN_TIME + ") FROM " + TABLE_JOB + " WHERE " + COLUMN_STATE + "=?";
+        try (Cursor cursor = db.rawQuery(sql, pendingArgs)) {
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                long delay = Math.max(0, cursor.getLong(0) - time);
+                wakeUpFuture = executor.schedule(dispatchRunnable, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 查询 已到时间的删除任务(最多 DELETE_BATCH_SIZE 个)
+     */
+    private List<ExportJob> queryDueDeleteJobs(SQLiteDatabase db, long time) {
+        List<ExportJob> jobList = new ArrayList<>();
+        String selection = COLUMN_STATE + "=? AND " + COLUMN_TYPE + "=? AND " + COLUMN_NEXT_RUN_TIME + "<=?";
+        String[] selectionArgs = new String[]{String.valueOf(ExportJob.STATE_PENDING),
+                String.valueOf(ExportJob.TYPE_DELETE), String.valueOf(time)};
+        String orderBy = COLUMN_NEXT_RUN_TIME + ", " + COLUMN_ID;
+        try (Cursor cursor = db.query(TABLE_JOB, JOB_COLUMNS, selection, selectionArgs, null, null, orderBy,
+                String.valueOf(DELETE_BATCH_SIZE))) {
+            while (cursor.moveToNext()) {
+                jobList.add(readJob(cursor));
+            }
+        }
+        return jobList;
+    }
+
+    /**
+     * 写入执行中(先写入再执行，进程被杀死后可以恢复)
+     */
+    private void markRunning(SQLiteDatabase db, List<ExportJob> jobList) {
+        db.beginTransaction();
+        try {
+            for (ExportJob job : jobList) {
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_STATE, ExportJob.STATE_RUNNING);
+                values.put(COLUMN_ATTEMPTS, job.getAttempts() + 1);
+                db.update(TABLE_JOB, values, COLUMN_ID + "=?", new String[]{String.valueOf(job.getId())});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 执行一批删除任务(调用一次 FileUtils.delete)
+     * <p>
+     * 需要用户授权的Uri(其他App创建的)不重试，任务标记为失败
+     */
+    private Runnable newDeleteRunnable(final List<ExportJob> jobList) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                int size = jobList.size();
+                int[] states = new int[size];
+                Uri[] uris = new Uri[size];
+                String[] errors = new String[size];
+                try {
+                    List<Uri> uriList = new ArrayList<>(size);
+                    for (ExportJob job : jobList) {
+                        uriList.add(job.getUri());
+                    }
+                    List<DeleteResult> resultList = FileUtils.delete(context, uriList);
+                    for (int i = 0; i < size; i++) {
+                        ExportJob job = jobList.get(i);
+                        DeleteResult result = resultList.get(i);
+                        if (result.isNeedsPermission()) {
+                            states[i] = ExportJob.STATE_FAILED;
+                            errors[i] = "needs permission: " + job.getUri();
+                        } else if (result.getStatus() == DeleteResult.STATUS_FAILED) {
+                            states[i] = job.getAttempts() + 1 < MAX_ATTEMPTS ? ExportJob.STATE_PENDING : ExportJob.STATE_FAILED;
+                            errors[i] = result.toString();
+                        } else {
+                            states[i] = ExportJob.STATE_SUCCEEDED;
+                            uris[i] = job.getUri();
+                        }
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    for (int i = 0; i < size; i++) {
+                        states[i] = jobList.get(i).getAttempts() + 1 < MAX_ATTEMPTS ? ExportJob.STATE_PENDING : ExportJob.STATE_FAILED;
+                        uris[i] = null;
+                        errors[i] = e.toString();
+                    }
+                } finally {
+                    try {
+                        finish(jobList, states, uris, errors);
+                    } finally {
+                        release();
+                    }
+                }
+            }
+        };
+    }
+
+    private Runnable newJobRunnable(final ExportJob job, final int attempts, final CancellationSignal cancellationSignal) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runJob(job, attempts, cancellationSignal);
+                } finally {
+                    release();
+                }
+            }
+        };
+    }
+
+    /**
+     * 执行一个导出任务
+     */
+    private void runJob(ExportJob job, int attempts, CancellationSignal cancellationSignal) {
+        int state;
+        Uri uri = null;
+        String error = null;
+        try {
+            File file = job.getFile();
+            if (file == null || !file.isFile()) {
+                finish(job, ExportJob.STATE_FAILED, null, "file not found: " + file);
+                return;
+            }
+            uri = export(job.getId(), file, job.getDirName(), cancellationSignal);
+            if (uri == null) {
+                error = "copy failed: " + file;
+            }
+        } catch (OperationCanceledException e) {
+            finish(job, ExportJob.STATE_CANCELED, null, null);
+            return;
+        } catch (Exception e) {
+            e.printStackTrace();
+            error = e.toString();
+        }
+
+        if (error == null) {
+            state = ExportJob.STATE_SUCCEEDED;
+        } else if (cancellationSignal.isCanceled()) {
+            state = ExportJob.STATE_CANCELED;// 已取消的不再重试
+        } else {
+            state = attempts < MAX_ATTEMPTS ? ExportJob.STATE_PENDING : ExportJob.STATE_FAILED;
+        }
+        finish(job, state, uri, error);
+    }
+
+    /**
+     * 复制文件到外部(大文件可续传)
+     *
+     * @param id                 任务id
+     * @param file               file
+     * @param dirName            dirName
+     * @param cancellationSignal 取消信号
+     * @return Uri(失败返回null)
+     */
+    private Uri export(final long id, File file, String dirName, CancellationSignal cancellationSignal) {
+        StreamCopier.ProgressListener listener = new StreamCopier.ProgressListener() {
+            @Override
+            public void onProgress(long bytes) {
+                progressMap.put(id, bytes);
+                JobListener jobListener = jobListenerMap.get(id);
+                if (jobListener != null) {
+                    jobListener.onProgress(bytes);
+                }
+                notifyChanged();
+            }
+        };
+        if (file.length() >= RESUMABLE_MIN_SIZE) {
+            return ResumableExporter.copyFileToExternal(context, dirName, file, cancellationSignal, listener);
+        }
+        return FileUtils.copyFileToExternal(context, dirName, file, cancellationSignal, listener);
+    }
+
+    /**
+     * 任务结束：写入结果，失败可重试时设置下次执行时间
+     */
+    private void finish(ExportJob job, int state, Uri uri, String error) {
+        finish(Collections.singletonList(job), new int[]{state}, new Uri[]{uri}, new String[]{error});
+    }
+
+    /**
+     * 任务结束：在一个事务中写入一批任务的结果，失败可重试时设置下次执行时间(执行次数为 job.getAttempts() + 1)
+     */
+    private void finish(List<ExportJob> jobList, int[] states, Uri[] uris, String[] errors) {
+        try {
+            synchronized (this) {
+                SQLiteDatabase db = getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    for (int i = 0; i < jobList.size(); i++) {
+                        ExportJob job = jobList.get(i);
+                        ContentValues values = new ContentValues();
+                        values.put(COLUMN_STATE, states[i]);
+                        values.put(COLUMN_ERROR, errors[i]);
+                        if (uris[i] != null) {
+                            values.put(COLUMN_URI, uris[i].toString());
+                        }
+                        if (states[i] == ExportJob.STATE_PENDING) {
+                            long backoff = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << Math.min(job.getAttempts(), 16));
+                            values.put(COLUMN_NEXT_RUN_TIME, System.currentTimeMillis() + backoff);
+                        }
+                        db.update(TABLE_JOB, values, COLUMN_ID + "=?", new String[]{String.valueOf(job.getId())});
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                    for (ExportJob job : jobList) {
+                        runningMap.remove(job.getId());// 与写入结果同步，cancel 不会取消已结束的任务
+                    }
+                }
+            }
+        } finally {
+            for (int i = 0; i < jobList.size(); i++) {
+                long id = jobList.get(i).getId();
+                progressMap.remove(id);
+                JobListener jobListener = jobListenerMap.remove(id);
+                if (jobListener != null) {
+                    // 等待重试(失败)时也回调，之后的重试不再回调
+                    jobListener.onFinish(states[i] == ExportJob.STATE_PENDING ? ExportJob.STATE_FAILED : states[i], uris[i]);
+                }
+            }
+            notifyChanged();
+        }
+    }
+
+    /**
+     * 释放执行位置，然后重新调度
+     */
+    private void release() {
+        synchronized (this) {
+            runningCount--;
+        }
+        executor.execute(dispatchRunnable);
+    }
+
+    private ExportJob readJob(Cursor cursor) {
+        long id = cursor.getLong(0);
+        String path = cursor.getString(3);
+        String uri = cursor.getString(5);
+        int state = cursor.getInt(2);
+        Long bytes = progressMap.get(id);
+        return new ExportJob(id, cursor.getInt(1), state,
+                path == null ? null : new File(path), cursor.getString(4), uri == null ? null : Uri.parse(uri),
+                cursor.getInt(6), bytes == null ? 0 : bytes, cursor.getLong(7), cursor.getString(8), cursor.getLong(9));
+    }
+
+    /**
+     * 队列状态
+     */
+    public static class Status {
+
+        private final int[] counts;
+        private final long bytes;
+        private final long totalBytes;
+        private final long time;
+
+        Status(int[] counts, long bytes, long totalBytes, long time) {
+            this.counts = counts;
+            this.bytes = bytes;
+            this.totalBytes = totalBytes;
+            this.time = time;
+        }
+
+        /**
+         * 获取 指定状态的任务数
+         *
+         * @param state ExportJob.STATE_XXX
+         * @return int
+         */
+        public int getCount(int state) {
+            return state >= 0 && state < counts.length ? counts[state] : 0;
+        }
+
+        /**
+         * 获取 执行中的任务已复制的字节数
+         *
+         * @return long
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * 获取 未完成(等待执行、执行中)的任务总字节数
+         *
+         * @return long
+         */
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        /**
+         * 是否空闲(没有未完成的任务)
+         *
+         * @return boolean
+         */
+        public boolean isIdle() {
+            return getCount(ExportJob.STATE_PENDING) == 0 && getCount(ExportJob.STATE_RUNNING) == 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Status{" +
+                    "pending=" + getCount(ExportJob.STATE_PENDING) +
+                    ", running=" + getCount(ExportJob.STATE_RUNNING) +
+                    ", succeeded=" + getCount(ExportJob.STATE_SUCCEEDED) +
+                    ", failed=" + getCount(ExportJob.STATE_FAILED) +
+                    ", canceled=" + getCount(ExportJob.STATE_CANCELED) +
+                    ", bytes=" + bytes + "/" + totalBytes +
+                    '}';
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.mask.sharelibrary;
+
+import android.net.Uri;
+
+import java.io.File;
+
+/**
+ * 批量复制文件到外部 的单个文件结果
+ */
+public class ExportResult {
+
+    private final File file;
+    private final Uri uri;
+    private final boolean duplicate;
+    private final Exception error;
+
+    ExportResult(File file, Uri uri, boolean duplicate, Exception error) {
+        this.file = file;
+        this.uri = uri;
+        this.duplicate = duplicate;
+        this.error = error;
+    }
+
+    static ExportResult success(File file, Uri uri, boolean duplicate) {
+        return new ExportResult(file, uri, duplicate, null);
+    }
+
+    static ExportResult failure(File file, Exception error) {
+        return new ExportResult(file, null, false, error);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 获取 Uri
+     *
+     * @return Uri(失败为null)
+     */
+    public Uri getUri() {
+        return uri;
+    }
+
+    /**
+     * 是否重复文件(没有复制，直接使用已有的Uri)
+     *
+     * @return boolean
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    /**
+     * 获取 失败原因
+     *
+     * @return Exception(成功为null)
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return uri != null;
+    }
+
+    @Override
+    public String toString() {
+        return "ExportResult{" +
+                "file=" + file +
+                ", uri=" + uri +
+                ", duplicate=" + duplicate +
+                ", error=" + error +
+                '}';
+    }
+
+}
@@ -0,0 +1,334 @@
+package com.mask.sharelibrary;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.net.Uri;
+import android.os.CancellationSignal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 文件内容摘要索引
+ * <p>
+ * 1. 缓存文件的内容摘要(SHA-256)，以 path+size+mtime 作为有效性判断，文件未变化时不再重复计算；
+ * 2. 记录内容摘要 + 目录名 -> 已导出的 MediaStore Uri，用于 copyFileToExternal 判断重复文件(重命名后也能识别)。
+ */
+public class FileDigestIndex extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "file_digest_index.db";
+    private static final int DB_VERSION = 3;
+
+    private static final String TABLE_DIGEST = "digest";
+    private static final String TABLE_EXPORT = "export";
+
+    private static final String COLUMN_PATH = "path";
+    private static final String COLUMN_SIZE = "size";
+    private static final String COLUMN_MTIME = "mtime";
+    private static final String COLUMN_DIGEST = "digest";
+    private static final String COLUMN_URI = "uri";
+    private static final String COLUMN_DIR_NAME = "dir_name";
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static volatile FileDigestIndex instance;
+
+    private FileDigestIndex(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    public static FileDigestIndex getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FileDigestIndex.class) {
+                if (instance == null) {
+                    instance = new FileDigestIndex(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_DIGEST + " ("
+                + COLUMN_PATH + " TEXT PRIMARY KEY, "
+                + COLUMN_SIZE + " INTEGER NOT NULL, "
+                + COLUMN_MTIME + " INTEGER NOT NULL, "
+                + COLUMN_DIGEST + " TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX digest_digest ON " + TABLE_DIGEST + " (" + COLUMN_DIGEST + ")");
+        createExportTable(db);
+    }
+
+    /**
+     * 导出记录：摘要 + 目录名 -> Uri
+     * <p>
+     * 目录名为null的是升级前的记录(不知道导出到哪个目录)，使用前需要校验Uri的目录
+     */
+    private static void createExportTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_EXPORT + " ("
+                + COLUMN_DIGEST + " TEXT NOT NULL, "
+                + COLUMN_DIR_NAME + " TEXT, "
+                + COLUMN_URI + " TEXT NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_DIGEST + ", " + COLUMN_DIR_NAME + "))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // 逐个版本升级，保留已有数据(重新计算摘要、查询导出记录的代价很大)
+        if (oldVersion < 2) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS digest_digest ON " + TABLE_DIGEST + " (" + COLUMN_DIGEST + ")");
+        }
+        if (oldVersion < 3) {
+            // 导出记录增加目录名(主键变化，需要重建表)
+            db.execSQL("ALTER TABLE " + TABLE_EXPORT + " RENAME TO " + TABLE_EXPORT + "_old");
+            createExportTable(db);
+            db.execSQL("INSERT INTO " + TABLE_EXPORT + " (" + COLUMN_DIGEST + ", " + COLUMN_URI + ")"
+                    + " SELECT " + COLUMN_DIGEST + ", " + COLUMN_URI + " FROM " + TABLE_EXPORT + "_old");
+            db.execSQL("DROP TABLE " + TABLE_EXPORT + "_old");
+        }
+    }
+
+    /**
+     * 获取 文件内容摘要(文件未变化时直接返回缓存)
+     *
+     * @param file file
+     * @return String digest(读取失败返回null)
+     */
+    public String getDigest(File file) {
+        return getDigest(file, null);
+    }
+
+    /**
+     * 获取 文件内容摘要(文件未变化时直接返回缓存)
+     *
+     * @param file               file
+     * @param cancellationSignal 取消信号(可为null)，计算过程中取消时抛出 OperationCanceledException
+     * @return String digest(读取失败返回null)
+     */
+    public String getDigest(File file, CancellationSignal cancellationSignal) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long mtime = file.lastModified();
+
+        String digest = null;
+        String[] columns = new String[]{COLUMN_DIGEST};
+        String selection = COLUMN_PATH + "=? AND " + COLUMN_SIZE + "=? AND " + COLUMN_MTIME + "=?";
+        String[] selectionArgs = new String[]{path, String.valueOf(size), String.valueOf(mtime)};
+        Cursor cursor = getReadableDatabase().query(TABLE_DIGEST, columns, selection, selectionArgs, null, null, null);
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                digest = cursor.getString(0);
+            }
+            cursor.close();
+        }
+        if (digest != null) {
+            return digest;
+        }
+
+        try (InputStream inputStream = new FileInputStream(file)) {
+            digest = computeDigest(inputStream, cancellationSignal);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        putDigest(path, size, mtime, digest);
+        return digest;
+    }
+
+    /**
+     * 记录 文件内容摘要(写入文件时已经计算过摘要，不需要再读取一次)
+     *
+     * @param file   file
+     * @param digest digest
+     */
+    public void putDigest(File file, String digest) {
+        if (file == null || digest == null) {
+            return;
+        }
+
+        putDigest(file.getAbsolutePath(), file.length(), file.lastModified(), digest);
+    }
+
+    private void putDigest(String path, long size, long mtime, String digest) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_PATH, path);
+        values.put(COLUMN_SIZE, size);
+        values.put(COLUMN_MTIME, mtime);
+        values.put(COLUMN_DIGEST, digest);
+        getWritableDatabase().insertWithOnConflict(TABLE_DIGEST, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * 获取 dir目录下内容摘要相同的文件(文件已变化或已删除的不返回)
+     * <p>
+     * 索引中还有导出的源文件等其他目录的文件，只返回 dir 目录下(不包括子目录)的文件
+     *
+     * @param digest digest
+     * @param dir    dir
+     * @return File
+     */
+    public File findFile(String digest, File dir) {
+        if (digest == null || dir == null) {
+            return null;
+        }
+        File absoluteDir = dir.getAbsoluteFile();
+
+        String[] columns = new String[]{COLUMN_PATH, COLUMN_SIZE, COLUMN_MTIME};
+        String selection = COLUMN_DIGEST + "=?";
+        String[] selectionArgs = new String[]{digest};
+        try (Cursor cursor = getReadableDatabase().query(TABLE_DIGEST, columns, selection, selectionArgs, null, null, null)) {
+            while (cursor.moveToNext()) {
+                File file = new File(cursor.getString(0));
+                if (!absoluteDir.equals(file.getParentFile())) {
+                    continue;
+                }
+                if (file.isFile() && file.length() == cursor.getLong(1) && file.lastModified() == cursor.getLong(2)) {
+                    return file;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取 已导出的Uri
+     * <p>
+     * 优先返回导出到 dirName 的记录，没有时返回升级前的记录(目录未知，调用方需要校验)
+     *
+     * @param digest  digest
+     * @param dirName 目录名(可为null)
+     * @return Uri
+     */
+    public Uri getExportUri(String digest, String dirName) {
+        if (digest == null) {
+            return null;
+        }
+
+        Uri uri = null;
+        String[] columns = new String[]{COLUMN_URI};
+        String selection = COLUMN_DIGEST + "=? AND (" + COLUMN_DIR_NAME + "=? OR " + COLUMN_DIR_NAME + " IS NULL)";
+        String[] selectionArgs = new String[]{digest, getDirNameKey(dirName)};
+        String orderBy = COLUMN_DIR_NAME + " IS NULL";
+        Cursor cursor = getReadableDatabase().query(TABLE_EXPORT, columns, selection, selectionArgs, null, null, orderBy, "1");
+        if (cursor != null) {
+            if (cursor.moveToFirst()) {
+                uri = Uri.parse(cursor.getString(0));
+            }
+            cursor.close();
+        }
+        return uri;
+    }
+
+    /**
+     * 记录 已导出的Uri
+     *
+     * @param digest  digest
+     * @param dirName 目录名(可为null)
+     * @param uri     uri
+     */
+    public void putExportUri(String digest, String dirName, Uri uri) {
+        if (digest == null || uri == null) {
+            return;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_DIGEST, digest);
+        values.put(COLUMN_DIR_NAME, getDirNameKey(dirName));
+        values.put(COLUMN_URI, uri.toString());
+        getWritableDatabase().insertWithOnConflict(TABLE_EXPORT, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static String getDirNameKey(String dirName) {
+        return dirName == null ? "" : dirName;
+    }
+
+    /**
+     * 移除 已导出的Uri(Uri已失效时调用)
+     *
+     * @param uri uri
+     */
+    public void removeExportUri(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+
+        getWritableDatabase().delete(TABLE_EXPORT, COLUMN_URI + "=?", new String[]{uri.toString()});
+    }
+
+    /**
+     * 计算 内容摘要(流式读取，不关闭流)
+     *
+     * @param inputStream inputStream
+     * @return String 十六进制摘要
+     * @throws IOException IOException
+     */
+    public static String computeDigest(InputStream inputStream) throws IOException {
+        return computeDigest(inputStream, null);
+    }
+
+    /**
+     * 计算 内容摘要(流式读取，不关闭流)
+     *
+     * @param inputStream        inputStream
+     * @param cancellationSignal 取消信号(可为null)，每读取一段检查一次
+     * @return String 十六进制摘要
+     * @throws IOException IOException
+     */
+    public static String computeDigest(InputStream inputStream, CancellationSignal cancellationSignal) throws IOException {
+        MessageDigest messageDigest = newMessageDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int byteRead;
+        while ((byteRead = inputStream.read(buffer)) != -1) {
+            if (cancellationSignal != null) {
+                cancellationSignal.throwIfCanceled();
+            }
+            messageDigest.update(buffer, 0, byteRead);
+        }
+        return toHex(messageDigest.digest());
+    }
+
+    /**
+     * 创建 MessageDigest
+     *
+     * @return MessageDigest
+     */
+    public static MessageDigest newMessageDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);// SHA-256 所有 Android 版本都支持
+        }
+    }
+
+    /**
+     * 转换 十六进制字符串
+     *
+     * @param bytes bytes
+     * @return String
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int value = bytes[i] & 0xFF;
+            chars[i * 2] = HEX_DIGITS[value >>> 4];
+            chars[i * 2 + 1] = HEX_DIGITS[value & 0x0F];
+        }
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,558 @@
+package com.mask.sharelibrary;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * FileUtils 操作统计
+ * <p>
+ * 1. 每个操作的耗时直方图(HDR 风格的对数-线性分桶，相对误差 ≤ 12.5%，记录只需要一次原子加)；
+ * 2. 复制的字节数和耗时(吞吐量)、查询次数、按异常类型统计的失败次数；
+ * 3. 通过 getSnapshot() 获取快照，或 setListener() 定时导出。
+ * <p>
+ * 默认不统计，begin() 只读取一个 volatile 字段，不获取时间
+ */
+public class FileOpsMetrics {
+
+    public static final int OP_GET_CONTENT_URI = 0;
+    public static final int OP_GET_DUPLICATE_FILE_URI = 1;
+    public static final int OP_COPY_FILE_TO_EXTERNAL = 2;
+    public static final int OP_DELETE = 3;
+    public static final int OP_DELETE_SYSTEM = 4;
+    public static final int OP_COPY_FILES_TO_EXTERNAL = 5;
+    public static final int OP_RESUMABLE_EXPORT = 6;
+    private static final int OP_COUNT = 7;
+
+    private static final String[] OP_NAMES = new String[]{
+            "getContentUri",
+            "getDuplicateFileUri",
+            "copyFileToExternal",
+            "delete",
+            "deleteSystem",
+            "copyFilesToExternal",
+            "resumableExport",
+    };
+
+    /**
+     * 失败但没有异常时的类型
+     */
+    public static final String FAILURE_NO_RESULT = "NoResult";
+
+    /**
+     * 每个2的幂区间内的子桶数(2^SUB_BUCKET_BITS)
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * 最大记录值(微秒，约 6 天，超过时记录为最大值)
+     */
+    private static final int MAX_VALUE_BITS = 39;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    /**
+     * 未统计时 begin() 的返回值
+     */
+    private static final long NOT_STARTED = 0;
+
+    private static final Operation[] operations = new Operation[OP_COUNT];
+    private static final AtomicLong bytesCopied = new AtomicLong();
+    private static final AtomicLong copyNanos = new AtomicLong();
+
+    static {
+        for (int i = 0; i < OP_COUNT; i++) {
+            operations[i] = new Operation();
+        }
+    }
+
+    private static volatile boolean enabled;
+    private static volatile long startTime = System.currentTimeMillis();
+
+    private static ScheduledExecutorService scheduledExecutor;
+    private static ScheduledFuture<?> listenerFuture;
+
+    private FileOpsMetrics() {
+    }
+
+    /**
+     * 定时导出的回调(在统计线程回调)
+     */
+    public interface Listener {
+        void onSnapshot(Snapshot snapshot);
+    }
+
+    /**
+     * 设置 是否统计(不设置 Listener，只通过 getSnapshot() 获取时使用)
+     *
+     * @param enabled enabled
+     */
+    public static void setEnabled(boolean enabled) {
+        FileOpsMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 设置 定时导出的回调(同时开始统计)
+     *
+     * @param listener       listener(为null时停止导出和统计)
+     * @param intervalMillis 导出间隔
+     */
+    public static synchronized void setListener(final Listener listener, long intervalMillis) {
+        if (listenerFuture != null) {
+            listenerFuture.cancel(false);
+            listenerFuture = null;
+        }
+        if (listener == null) {
+            enabled = false;
+            return;
+        }
+        if (scheduledExecutor == null) {
+            scheduledExecutor = Executors.newSingleThreadScheduledExecutor(IoExecutors.newThreadFactory("file-ops-metrics"));
+        }
+        enabled = true;
+        listenerFuture = scheduledExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    listener.onSnapshot(getSnapshot());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 开始操作
+     *
+     * @return long 开始时间(传给 end/fail；未统计时为0)
+     */
+    public static long begin() {
+        if (!enabled) {
+            return NOT_STARTED;
+        }
+        long time = System.nanoTime();
+        return time == NOT_STARTED ? 1 : time;
+    }
+
+    /**
+     * 操作成功
+     *
+     * @param op        op
+     * @param startTime begin() 的返回值
+     */
+    public static void end(int op, long startTime) {
+        if (startTime == NOT_STARTED) {
+            return;
+        }
+        operations[op].record(System.nanoTime() - startTime);
+    }
+
+    /**
+     * 操作失败
+     *
+     * @param op        op
+     * @param startTime begin() 的返回值
+     * @param e         异常(可为null)
+     */
+    public static void fail(int op, long startTime, Throwable e) {
+        fail(op, startTime, e == null ? FAILURE_NO_RESULT : e.getClass().getName());
+    }
+
+    /**
+     * 操作失败
+     *
+     * @param op        op
+     * @param startTime begin() 的返回值
+     * @param type      失败类型
+     */
+    public static void fail(int op, long startTime, String type) {
+        if (startTime == NOT_STARTED) {
+            return;
+        }
+        Operation operation = operations[op];
+        operation.record(System.nanoTime() - startTime);
+        operation.fail(type);
+    }
+
+    /**
+     * 查询了一次 ContentResolver
+     *
+     * @param op op
+     */
+    public static void query(int op) {
+        if (!enabled) {
+            return;
+        }
+        operations[op].queryCount.incrementAndGet();
+    }
+
+    /**
+     * 复制了数据
+     *
+     * @param bytes     字节数
+     * @param startTime 复制开始时 begin() 的返回值
+     */
+    public static void copied(long bytes, long startTime) {
+        if (startTime == NOT_STARTED) {
+            return;
+        }
+        copyNanos.addAndGet(System.nanoTime() - startTime);
+        bytesCopied.addAndGet(bytes);
+    }
+
+    /**
+     * 获取 快照
+     * <p>
+     * 各个计数分别读取，并发记录时不同计数之间可能有微小的不一致
+     *
+     * @return Snapshot
+     */
+    public static Snapshot getSnapshot() {
+        OperationSnapshot[] snapshots = new OperationSnapshot[OP_COUNT];
+        for (int i = 0; i < OP_COUNT; i++) {
+            snapshots[i] = operations[i].snapshot(OP_NAMES[i]);
+        }
+        return new Snapshot(startTime, System.currentTimeMillis(), snapshots, bytesCopied.get(), copyNanos.get());
+    }
+
+    /**
+     * 重置
+     */
+    public static void reset() {
+        for (Operation operation : operations) {
+            operation.reset();
+        }
+        bytesCopied.set(0);
+        copyNanos.set(0);
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 获取 桶位置
+     *
+     * @param value 微秒
+     * @return int
+     */
+    private static int getBucketIndex(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        if (value < SUB_BUCKET_COUNT << 1) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * 获取 桶的上限(微秒，不包括)
+     *
+     * @param index index
+     * @return long
+     */
+    private static long getBucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT << 1) {
+            return index + 1;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long mantissa = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return (mantissa + 1) << shift;
+    }
+
+    /**
+     * 单个操作的统计
+     */
+    private static class Operation {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+        private final AtomicLong queryCount = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        private final ConcurrentHashMap<String, AtomicLong> failureMap = new ConcurrentHashMap<>();
+
+        void record(long nanos) {
+            long micros = nanos / 1000;
+            buckets.incrementAndGet(getBucketIndex(micros));
+            count.incrementAndGet();
+            totalMicros.addAndGet(micros);
+            long max;
+            while (micros > (max = maxMicros.get())) {
+                if (maxMicros.compareAndSet(max, micros)) {
+                    break;
+                }
+            }
+        }
+
+        void fail(String type) {
+            failureCount.incrementAndGet();
+            AtomicLong typeCount = failureMap.get(type);
+            if (typeCount == null) {
+                AtomicLong newCount = new AtomicLong();
+                typeCount = failureMap.putIfAbsent(type, newCount);
+                if (typeCount == null) {
+                    typeCount = newCount;
+                }
+            }
+            typeCount.incrementAndGet();
+        }
+
+        OperationSnapshot snapshot(String name) {
+            long[] counts = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = buckets.get(i);
+            }
+            Map<String, Long> failures = new HashMap<>();
+            for (Map.Entry<String, AtomicLong> entry : failureMap.entrySet()) {
+                failures.put(entry.getKey(), entry.getValue().get());
+            }
+            return new OperationSnapshot(name, count.get(), totalMicros.get(), maxMicros.get(),
+                    queryCount.get(), failureCount.get(), failures, counts);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            totalMicros.set(0);
+            maxMicros.set(0);
+            queryCount.set(0);
+            failureCount.set(0);
+            failureMap.clear();
+        }
+    }
+
+    /**
+     * 快照
+     */
+    public static class Snapshot {
+        private final long startTime;
+        private final long endTime;
+        private final OperationSnapshot[] operations;
+        private final long bytesCopied;
+        private final long copyNanos;
+
+        Snapshot(long startTime, long endTime, OperationSnapshot[] operations, long bytesCopied, long copyNanos) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.operations = operations;
+            this.bytesCopied = bytesCopied;
+            this.copyNanos = copyNanos;
+        }
+
+        /**
+         * 获取 统计开始时间(毫秒，开始或上次 reset 的时间)
+         *
+         * @return long
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+
+        /**
+         * 获取 快照时间(毫秒)
+         *
+         * @return long
+         */
+        public long getEndTime() {
+            return endTime;
+        }
+
+        /**
+         * 获取 操作统计
+         *
+         * @param op op(例如：OP_GET_CONTENT_URI)
+         * @return OperationSnapshot
+         */
+        public OperationSnapshot getOperation(int op) {
+            return operations[op];
+        }
+
+        public long getBytesCopied() {
+            return bytesCopied;
+        }
+
+        /**
+         * 获取 复制吞吐量
+         *
+         * @return double 字节/秒(没有复制时为0)
+         */
+        public double getThroughput() {
+            return copyNanos <= 0 ? 0 : bytesCopied * 1e9 / copyNanos;
+        }
+
+        /**
+         * 转换为 JSON(用于导出)
+         *
+         * @return String
+         */
+        public String toJson() {
+            StringBuilder builder = new StringBuilder(1024);
+            builder.append("{\"startTime\":").append(startTime)
+                    .append(",\"endTime\":").append(endTime)
+                    .append(",\"bytesCopied\":").append(bytesCopied)
+                    .append(",\"throughput\":").append(String.format(Locale.US, "%.1f", getThroughput()))
+                    .append(",\"operations\":[");
+            for (int i = 0; i < operations.length; i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                operations[i].appendJson(builder);
+            }
+            return builder.append("]}").toString();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("FileOpsMetrics{bytesCopied=").append(bytesCopied)
+                    .append(", throughput=").append(String.format(Locale.US, "%.1fMB/s", getThroughput() / 1024 / 1024));
+            for (OperationSnapshot operation : operations) {
+                builder.append("\n").append(operation);
+            }
+            return builder.append('}').toString();
+        }
+    }
+
+    /**
+     * 单个操作的快照(时间单位为微秒)
+     */
+    public static class OperationSnapshot {
+        private final String name;
+        private final long count;
+        private final long totalMicros;
+        private final long maxMicros;
+        private final long queryCount;
+        private final long failureCount;
+        private final Map<String, Long> failures;
+        private final long[] buckets;
+
+        OperationSnapshot(String name, long count, long totalMicros, long maxMicros,
+                          long queryCount, long failureCount, Map<String, Long> failures, long[] buckets) {
+            this.name = name;
+            this.count = count;
+            this.totalMicros = totalMicros;
+            this.maxMicros = maxMicros;
+            this.queryCount = queryCount;
+            this.failureCount = failureCount;
+            this.failures = Collections.unmodifiableMap(failures);
+            this.buckets = buckets;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 获取 调用次数(包括失败)
+         *
+         * @return long
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getQueryCount() {
+            return queryCount;
+        }
+
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        /**
+         * 获取 按类型统计的失败次数
+         *
+         * @return Map 异常类名(或 FAILURE_NO_RESULT) -> 次数
+         */
+        public Map<String, Long> getFailures() {
+            return failures;
+        }
+
+        public long getMeanMicros() {
+            return count == 0 ? 0 : totalMicros / count;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        /**
+         * 获取 百分位耗时
+         *
+         * @param percentile 0~100(例如：99)
+         * @return long 微秒(所在桶的上限，不超过最大值)
+         */
+        public long getPercentileMicros(double percentile) {
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long sum = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                sum += buckets[i];
+                if (sum >= target) {
+                    return Math.min(getBucketUpperBound(i), maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+
+        void appendJson(StringBuilder builder) {
+            builder.append("{\"name\":\"").append(name)
+                    .append("\",\"count\":").append(count)
+                    .append(",\"queryCount\":").append(queryCount)
+                    .append(",\"failureCount\":").append(failureCount)
+                    .append(",\"meanMicros\":").append(getMeanMicros())
+                    .append(",\"p50Micros\":").append(getPercentileMicros(50))
+                    .append(",\"p90Micros\":").append(getPercentileMicros(90))
+                    .append(",\"p99Micros\":").append(getPercentileMicros(99))
+                    .append(",\"maxMicros\":").append(maxMicros)
+                    .append(",\"failures\":{");
+            boolean first = true;
+            for (Map.Entry<String, Long> entry : failures.entrySet()) {
+                if (!first) {
+                    builder.append(',');
+                }
+                first = false;
+                builder.append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+            }
+            builder.append("}}");
+        }
+
+        @Override
+        public String toString() {
+            return name + "{" +
+                    "count=" + count +
+                    ", query=" + queryCount +
+                    ", failure=" + failureCount +
+                    ", mean=" + getMeanMicros() + "us" +
+                    ", p50=" + getPercentileMicros(50) + "us" +
+                    ", p99=" + getPercentileMicros(99) + "us" +
+                    ", max=" + maxMicros + "us" +
+                    ", failures=" + failures +
+                    '}';
+        }
+    }
+
+}
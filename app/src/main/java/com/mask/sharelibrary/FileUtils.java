@@ -2,15 +2,19 @@ package com.mask.sharelibrary;
 
 import android.app.Activity;
 import android.app.RecoverableSecurityException;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.IntentSender;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
+import android.os.CancellationSignal;
 import android.os.Environment;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
 import android.provider.DocumentsContract;
 import android.provider.MediaStore;
 import android.text.TextUtils;
@@ -21,9 +25,24 @@ import androidx.documentfile.provider.DocumentFile;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * FileUtils
@@ -31,6 +50,26 @@ import java.io.OutputStream;
  */
 public class FileUtils {
 
+    /**
+     * 无法识别的文件MimeType
+     */
+    public static final String MIME_TYPE_DEFAULT = "application/octet-stream";
+
+    /**
+     * 单次查询的最大参数个数(SQLite 默认限制为 999，留出余量)
+     */
+    static final int QUERY_CHUNK_SIZE = 500;
+
+    /**
+     * 进度回调间隔
+     */
+    private static final long PROGRESS_INTERVAL_MILLIS = 100;
+
+    /**
+     * applyBatch 单批最大操作数
+     */
+    private static final int BATCH_SIZE = 100;
+
     /**
      * 获取 Authority(7.0Uri适配)
      *
@@ -56,6 +95,22 @@ public class FileUtils {
         }
     }
 
+    /**
+     * 获取 StreamUri(App私有目录内的文件直接分享，不需要复制到外部)
+     * <p>
+     * 与 FileUri 不同，查询时会返回 OpenableColumns，见 {@link StreamShareProvider}
+     *
+     * @param context context
+     * @param file    file(App私有目录内的文件)
+     * @return Uri(不在App私有目录内时返回null)
+     */
+    public static Uri getStreamUri(Context context, File file) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        return StreamShareProvider.getUri(context, file);
+    }
+
     /**
      * 获取 ContentUri
      *
@@ -64,32 +119,141 @@ public class FileUtils {
      * @return Uri
      */
     public static Uri getContentUri(Context context, File file) {
+        TraceRecorder.beginSection("getContentUri", file);
+        long startTime = FileOpsMetrics.begin();
+        try {
+            Uri uri = queryContentUri(context, file);
+            FileOpsMetrics.end(FileOpsMetrics.OP_GET_CONTENT_URI, startTime);
+            return uri;
+        } catch (RuntimeException e) {
+            FileOpsMetrics.fail(FileOpsMetrics.OP_GET_CONTENT_URI, startTime, e);
+            throw e;
+        } finally {
+            TraceRecorder.endSection();
+        }
+    }
+
+    private static Uri queryContentUri(Context context, File file) {
         if (file == null || !file.exists()) {
             return null;
         }
 
-        Uri uri = null;
         String path = file.getAbsolutePath();
-        String mimeType = getMimeType(file.getName());
+        MediaStoreCache cache = MediaStoreCache.getInstance(context);
+        Uri cacheUri = cache.getContentUri(path);
+        if (cacheUri != null) {
+            return MediaStoreCache.unwrap(cacheUri);
+        }
+        long generation = cache.getGeneration();
+
+        Uri uri = null;
+        String mimeType = getMimeType(file);
 
         ContentResolver contentResolver = context.getContentResolver();
         Uri contentUri = getContentUri(mimeType);
         String[] projection = new String[]{MediaStore.MediaColumns._ID};
         String selection = MediaStore.MediaColumns.DATA + "=?";
         String[] selectionArgs = new String[]{path};
-        Cursor cursor = contentResolver.query(contentUri, projection, selection, selectionArgs, null);
-        if (cursor != null) {
-            if (cursor.moveToFirst()) {
-                int idCol = cursor.getColumnIndex(MediaStore.MediaColumns._ID);
-                if (idCol >= 0) {
-                    uri = ContentUris.withAppendedId(contentUri, cursor.getLong(idCol));
-                }
+        FileOpsMetrics.query(FileOpsMetrics.OP_GET_CONTENT_URI);
+        try (CursorReader reader = CursorReader.wrap(contentResolver.query(contentUri, projection, selection, selectionArgs, null), projection)) {
+            if (reader != null && reader.moveToNext() && reader.hasColumn(0)) {
+                uri = ContentUris.withAppendedId(contentUri, reader.getLong(0));
             }
-            cursor.close();
         }
+        cache.putContentUri(generation, path, uri);
         return uri;
     }
 
+    /**
+     * 批量获取 ContentUri
+     * <p>
+     * 按 mimeType 对应的集合分组，每组使用 DATA IN (...) 分段查询，
+     * 避免每个文件都单独查询一次 MediaStore
+     *
+     * @param context  context
+     * @param fileList fileList(特定的文件才能查询到)
+     * @return Map path -> Uri(查询不到的文件不包含在内)
+     */
+    public static Map<String, Uri> getContentUris(Context context, List<File> fileList) {
+        Map<String, Uri> uriMap = new HashMap<>();
+        if (fileList == null || fileList.isEmpty()) {
+            return uriMap;
+        }
+
+        MediaStoreCache cache = MediaStoreCache.getInstance(context);
+        long generation = cache.getGeneration();
+
+        // 按集合分组(已缓存的不再查询)
+        Map<Uri, List<String>> groupMap = new LinkedHashMap<>();
+        for (File file : fileList) {
+            if (file == null || !file.exists()) {
+                continue;
+            }
+            String path = file.getAbsolutePath();
+            Uri cacheUri = cache.getContentUri(path);
+            if (cacheUri != null) {
+                if (MediaStoreCache.unwrap(cacheUri) != null) {
+                    uriMap.put(path, cacheUri);
+                }
+                continue;
+            }
+            Uri contentUri = getContentUri(getMimeType(file));
+            List<String> pathList = groupMap.get(contentUri);
+            if (pathList == null) {
+                pathList = new ArrayList<>();
+                groupMap.put(contentUri, pathList);
+            }
+            pathList.add(path);
+        }
+
+        ContentResolver contentResolver = context.getContentResolver();
+        String[] projection = new String[]{MediaStore.MediaColumns._ID, MediaStore.MediaColumns.DATA};
+        for (Map.Entry<Uri, List<String>> entry : groupMap.entrySet()) {
+            Uri contentUri = entry.getKey();
+            List<String> pathList = entry.getValue();
+            for (int start = 0; start < pathList.size(); start += QUERY_CHUNK_SIZE) {
+                int end = Math.min(start + QUERY_CHUNK_SIZE, pathList.size());
+                String[] selectionArgs = pathList.subList(start, end).toArray(new String[0]);
+                String selection = MediaStore.MediaColumns.DATA + " IN (" + getPlaceholders(selectionArgs.length) + ")";
+                TraceRecorder.beginSection("getContentUris", contentUri);
+                TraceRecorder.counter("queryPaths", selectionArgs.length);
+                try (CursorReader reader = CursorReader.wrap(contentResolver.query(contentUri, projection, selection, selectionArgs, null), projection)) {
+                    if (reader != null && reader.hasColumn(0) && reader.hasColumn(1)) {
+                        while (reader.moveToNext()) {
+                            String path = reader.getString(1);
+                            if (path != null && !uriMap.containsKey(path)) {
+                                uriMap.put(path, ContentUris.withAppendedId(contentUri, reader.getLong(0)));
+                            }
+                        }
+                    }
+                } finally {
+                    TraceRecorder.endSection();
+                }
+                for (String path : selectionArgs) {
+                    cache.putContentUri(generation, path, uriMap.get(path));
+                }
+            }
+        }
+        return uriMap;
+    }
+
+    /**
+     * 获取 查询参数占位符(例如："?,?,?")
+     *
+     * @param count count
+     * @return String
+     */
+    static String getPlaceholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append('?');
+        }
+        return builder.toString();
+    }
+
     /**
      * 获取 重复文件Uri
      *
@@ -98,30 +262,49 @@ public class FileUtils {
      * @return Uri
      */
     public static Uri getDuplicateFileUri(Context context, File file) {
+        TraceRecorder.beginSection("getDuplicateFileUri", file);
+        long startTime = FileOpsMetrics.begin();
+        try {
+            Uri uri = queryDuplicateFileUri(context, file);
+            FileOpsMetrics.end(FileOpsMetrics.OP_GET_DUPLICATE_FILE_URI, startTime);
+            return uri;
+        } catch (RuntimeException e) {
+            FileOpsMetrics.fail(FileOpsMetrics.OP_GET_DUPLICATE_FILE_URI, startTime, e);
+            throw e;
+        } finally {
+            TraceRecorder.endSection();
+        }
+    }
+
+    private static Uri queryDuplicateFileUri(Context context, File file) {
         if (file == null || !file.exists()) {
             return null;
         }
 
-        Uri uri = null;
         String name = file.getName();
         long size = file.length();
-        String mimeType = getMimeType(name);
+        MediaStoreCache cache = MediaStoreCache.getInstance(context);
+        Uri cacheUri = cache.getDuplicateUri(name, size);
+        if (cacheUri != null) {
+            return MediaStoreCache.unwrap(cacheUri);
+        }
+        long generation = cache.getGeneration();
+
+        Uri uri = null;
+        String mimeType = getMimeType(file);
 
         ContentResolver contentResolver = context.getContentResolver();
         Uri contentUri = getContentUri(mimeType);
         String[] projection = new String[]{MediaStore.MediaColumns._ID};
         String selection = MediaStore.MediaColumns.DISPLAY_NAME + "=?" + " AND " + MediaStore.MediaColumns.SIZE + "=?";
         String[] selectionArgs = new String[]{name, String.valueOf(size)};
-        Cursor cursor = contentResolver.query(contentUri, projection, selection, selectionArgs, null);
-        if (cursor != null) {
-            if (cursor.moveToFirst()) {
-                int idCol = cursor.getColumnIndex(MediaStore.MediaColumns._ID);
-                if (idCol >= 0) {
-                    uri = ContentUris.withAppendedId(contentUri, cursor.getLong(idCol));
-                }
+        FileOpsMetrics.query(FileOpsMetrics.OP_GET_DUPLICATE_FILE_URI);
+        try (CursorReader reader = CursorReader.wrap(contentResolver.query(contentUri, projection, selection, selectionArgs, null), projection)) {
+            if (reader != null && reader.moveToNext() && reader.hasColumn(0)) {
+                uri = ContentUris.withAppendedId(contentUri, reader.getLong(0));
             }
-            cursor.close();
         }
+        cache.putDuplicateUri(generation, name, size, uri);
         return uri;
     }
 
@@ -140,19 +323,22 @@ public class FileUtils {
             return null;
         }
 
+        MediaStoreCache cache = MediaStoreCache.getInstance(context);
+        String cachePath = cache.getPath(uri);
+        if (cachePath != null) {
+            return MediaStoreCache.unwrap(cachePath);
+        }
+        long generation = cache.getGeneration();
+
         String path = null;
         ContentResolver contentResolver = context.getContentResolver();
         String[] projection = new String[]{MediaStore.MediaColumns.DATA};
-        Cursor cursor = contentResolver.query(uri, projection, null, null, null);
-        if (cursor != null) {
-            if (cursor.moveToFirst()) {
-                int pathCol = cursor.getColumnIndex(MediaStore.MediaColumns.DATA);
-                if (pathCol >= 0) {
-                    path = cursor.getString(pathCol);
-                }
+        try (CursorReader reader = CursorReader.wrap(contentResolver.query(uri, projection, null, null, null), projection)) {
+            if (reader != null && reader.moveToNext()) {
+                path = reader.getString(0);
             }
-            cursor.close();
         }
+        cache.putPath(generation, uri, path);
         return path;
     }
 
@@ -208,10 +394,33 @@ public class FileUtils {
      * 获取 文件MimeType
      *
      * @param name name
-     * @return String MimeType
+     * @return String MimeType(没有扩展名或扩展名未知时为null)
      */
     public static String getMimeType(String name) {
-        return MimeTypeMap.getSingleton().getMimeTypeFromExtension(getExtension(name));
+        String mimeType = MimeTypes.getMimeType(name);
+        if (mimeType == null && name != null) {
+            String extension = getExtension(name);
+            if (!extension.isEmpty()) {
+                mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension.toLowerCase(Locale.US));
+            }
+        }
+        return mimeType;
+    }
+
+    /**
+     * 获取 文件MimeType
+     * <p>
+     * 扩展名未知时根据文件头部的魔数判断，都无法识别时为 MIME_TYPE_DEFAULT
+     *
+     * @param file file
+     * @return String MimeType
+     */
+    public static String getMimeType(File file) {
+        String mimeType = getMimeType(file.getName());
+        if (mimeType == null) {
+            mimeType = MimeTypes.sniffMimeType(file);
+        }
+        return mimeType != null ? mimeType : MIME_TYPE_DEFAULT;
     }
 
     /**
@@ -238,12 +447,14 @@ public class FileUtils {
     /**
      * 获取 Uri(根据mimeType)
      *
-     * @param mimeType mimeType
+     * @param mimeType mimeType(可为null)
      * @return Uri
      */
     public static Uri getContentUri(String mimeType) {
         Uri contentUri;
-        if (mimeType.startsWith("image")) {
+        if (mimeType == null) {
+            contentUri = MediaStore.Files.getContentUri("external");
+        } else if (mimeType.startsWith("image")) {
             contentUri = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
         } else if (mimeType.startsWith("video")) {
             contentUri = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
@@ -258,12 +469,14 @@ public class FileUtils {
     /**
      * 获取 文件夹名称(根据mimeType)
      *
-     * @param mimeType mimeType
+     * @param mimeType mimeType(可为null)
      * @return String dirName
      */
     public static String getDirName(String mimeType) {
         String dirName;
-        if (mimeType.startsWith("image")) {
+        if (mimeType == null) {
+            dirName = Environment.DIRECTORY_DOCUMENTS;
+        } else if (mimeType.startsWith("image")) {
             dirName = Environment.DIRECTORY_PICTURES;
         } else if (mimeType.startsWith("video")) {
             dirName = Environment.DIRECTORY_PICTURES;
@@ -286,69 +499,716 @@ public class FileUtils {
      * @return Uri
      */
     public static Uri copyFileToExternal(Context context, String dirName, File file) {
+        return copyFileToExternal(context, dirName, file, null, null);
+    }
+
+    /**
+     * 复制文件到外部(可取消，带进度)
+     * <p>
+     * 取消时会删除已插入的Uri，并抛出 OperationCanceledException
+     *
+     * @param context            context
+     * @param dirName            目录名(例如："/Pictures/WeChat"中的"WeChat")
+     * @param file               file
+     * @param cancellationSignal 取消信号(可为null)
+     * @param listener           进度回调(可为null，在当前线程回调)
+     * @return Uri
+     */
+    public static Uri copyFileToExternal(Context context, String dirName, File file,
+                                         CancellationSignal cancellationSignal, StreamCopier.ProgressListener listener) {
+        TraceRecorder.beginSection("copyFileToExternal", file);
+        try {
+            return exportFile(context, dirName, file, cancellationSignal, listener);
+        } finally {
+            TraceRecorder.endSection();
+        }
+    }
+
+    private static Uri exportFile(Context context, String dirName, File file,
+                                  CancellationSignal cancellationSignal, StreamCopier.ProgressListener listener) {
         if (file == null || !file.exists()) {
             return null;
         }
+        long startTime = FileOpsMetrics.begin();
 
         // 获取是否有重复的文件，避免重复复制
-        Uri uri = getDuplicateFileUri(context, file);
+        FileDigestIndex digestIndex = FileDigestIndex.getInstance(context);
+        String digest;
+        TraceRecorder.beginSection("getDigest");
+        try {
+            digest = digestIndex.getDigest(file, cancellationSignal);
+        } catch (OperationCanceledException e) {
+            FileOpsMetrics.fail(FileOpsMetrics.OP_COPY_FILE_TO_EXTERNAL, startTime, e);
+            throw e;
+        } finally {
+            TraceRecorder.endSection();
+        }
+        Uri uri = getDuplicateFileUri(context, file, digest, dirName);
         if (uri != null) {
+            FileOpsMetrics.end(FileOpsMetrics.OP_COPY_FILE_TO_EXTERNAL, startTime);
             return uri;
         }
+        if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+            FileOpsMetrics.fail(FileOpsMetrics.OP_COPY_FILE_TO_EXTERNAL, startTime, OperationCanceledException.class.getName());
+            cancellationSignal.throwIfCanceled();
+        }
 
-        String name = file.getName();
-        String mimeType = getMimeType(name);
+        String mimeType = getMimeType(file);
 
         ContentResolver contentResolver = context.getContentResolver();
         Uri contentUri = getContentUri(mimeType);
 
         // 插入参数
-        ContentValues values = new ContentValues();
-        values.put(MediaStore.MediaColumns.DISPLAY_NAME, name);// 文件名
-        values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);// mimeType
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            String dirPath = getDirName(mimeType);
-            if (!TextUtils.isEmpty(dirName)) {
-                dirPath += File.separatorChar + dirName;
-            }
-            values.put(MediaStore.MediaColumns.RELATIVE_PATH, dirPath);// 相对路径
-            values.put(MediaStore.MediaColumns.IS_PENDING, 1);// 文件的处理状态(防止写入过程中被其他App查询到，写入完成后记得修改回来)
-        }
+        ContentValues values = getInsertValues(file, dirName);
 
         // 获取插入的Uri
-        uri = contentResolver.insert(contentUri, values);
+        TraceRecorder.beginSection("insert");
+        try {
+            uri = contentResolver.insert(contentUri, values);
+        } catch (RuntimeException e) {
+            FileOpsMetrics.fail(FileOpsMetrics.OP_COPY_FILE_TO_EXTERNAL, startTime, e);
+            throw e;
+        } finally {
+            TraceRecorder.endSection();
+        }
         if (uri == null) {
+            FileOpsMetrics.fail(FileOpsMetrics.OP_COPY_FILE_TO_EXTERNAL, startTime, FileOpsMetrics.FAILURE_NO_RESULT);
             return null;
         }
 
         // 复制文件
-        boolean copySuccess = false;
-        try (OutputStream outputStream = contentResolver.openOutputStream(uri);
-             InputStream inputStream = new FileInputStream(file)) {
-            copySuccess = copy(inputStream, outputStream);
+        Exception copyError = null;
+        try {
+            copyFileToUri(contentResolver, file, uri, cancellationSignal, listener);
+        } catch (OperationCanceledException e) {
+            delete(context, uri);
+            FileOpsMetrics.fail(FileOpsMetrics.OP_COPY_FILE_TO_EXTERNAL, startTime, e);
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
+            copyError = e;
         }
         // 复制失败则删除
-        if (!copySuccess) {
+        if (copyError != null) {
             delete(context, uri);
+            FileOpsMetrics.fail(FileOpsMetrics.OP_COPY_FILE_TO_EXTERNAL, startTime, copyError);
             return null;
         }
 
-        // 更新文件的处理状态
+        // 更新文件的处理状态(失败时仍是待处理状态，其他App无法读取，删除且不记录到摘要索引)
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
             values.clear();
             values.put(MediaStore.MediaColumns.IS_PENDING, 0);// 文件的处理状态(防止写入过程中被其他App查询到，写入完成后记得修改回来)
 
-            contentResolver.update(uri, values, null, null);
+            TraceRecorder.beginSection("update");
+            try {
+                if (contentResolver.update(uri, values, null, null) <= 0) {
+                    delete(context, uri);
+                    FileOpsMetrics.fail(FileOpsMetrics.OP_COPY_FILE_TO_EXTERNAL, startTime, FileOpsMetrics.FAILURE_NO_RESULT);
+                    return null;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                delete(context, uri);
+                FileOpsMetrics.fail(FileOpsMetrics.OP_COPY_FILE_TO_EXTERNAL, startTime, e);
+                return null;
+            } finally {
+                TraceRecorder.endSection();
+            }
         }
 
+        digestIndex.putExportUri(digest, dirName, uri);
+        FileOpsMetrics.end(FileOpsMetrics.OP_COPY_FILE_TO_EXTERNAL, startTime);
         return uri;
     }
 
+    /**
+     * 获取 插入参数
+     *
+     * @param file    file
+     * @param dirName 目录名(例如："/Pictures/WeChat"中的"WeChat")
+     * @return ContentValues
+     */
+    static ContentValues getInsertValues(File file, String dirName) {
+        return getInsertValues(file.getName(), getMimeType(file), dirName);
+    }
+
+    /**
+     * 获取 插入参数
+     *
+     * @param name     文件名
+     * @param mimeType mimeType
+     * @param dirName  目录名(例如："/Pictures/WeChat"中的"WeChat")
+     * @return ContentValues
+     */
+    static ContentValues getInsertValues(String name, String mimeType, String dirName) {
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.DISPLAY_NAME, name);// 文件名
+        values.put(MediaStore.MediaColumns.MIME_TYPE, mimeType);// mimeType
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            values.put(MediaStore.MediaColumns.RELATIVE_PATH, getRelativePath(mimeType, dirName));// 相对路径
+            values.put(MediaStore.MediaColumns.IS_PENDING, 1);// 文件的处理状态(防止写入过程中被其他App查询到，写入完成后记得修改回来)
+        }
+        return values;
+    }
+
+    /**
+     * 获取 相对路径(例如："Pictures/WeChat")
+     *
+     * @param mimeType mimeType
+     * @param dirName  目录名(例如："/Pictures/WeChat"中的"WeChat")
+     * @return String
+     */
+    static String getRelativePath(String mimeType, String dirName) {
+        String dirPath = getDirName(mimeType);
+        if (!TextUtils.isEmpty(dirName)) {
+            dirPath += File.separatorChar + dirName;
+        }
+        return dirPath;
+    }
+
+    /**
+     * 复制文件到Uri
+     * <p>
+     * Uri 打开为文件描述符(FileOutputStream)时使用 FileChannel.transferTo(大文件不经过用户态缓冲区)，
+     * 否则使用流水线复制，读取和写入互相重叠；
+     * 内容摘要在复制前已计算(用于判断重复文件)，复制时不再重复计算
+     *
+     * @param contentResolver    contentResolver
+     * @param file               file
+     * @param uri                uri
+     * @param cancellationSignal 取消信号(可为null)
+     * @param listener           进度回调(可为null)
+     * @throws IOException IOException
+     */
+    private static void copyFileToUri(ContentResolver contentResolver, File file, Uri uri,
+                                      CancellationSignal cancellationSignal, StreamCopier.ProgressListener listener) throws IOException {
+        TraceRecorder.beginSection("copy", file);
+        try (OutputStream outputStream = contentResolver.openOutputStream(uri);
+             InputStream inputStream = new FileInputStream(file)) {
+            if (outputStream == null) {
+                throw new FileNotFoundException("openOutputStream failed: " + uri);
+            }
+            long startTime = FileOpsMetrics.begin();
+            long bytes;
+            if (outputStream instanceof FileOutputStream) {
+                bytes = StreamCopier.copy(inputStream, outputStream, cancellationSignal, listener);
+            } else {
+                bytes = StreamCopier.copyPipelined(inputStream, outputStream, null, cancellationSignal, listener);
+            }
+            outputStream.flush();
+            FileOpsMetrics.copied(bytes, startTime);
+            TraceRecorder.counter("copyBytes", bytes);
+        } finally {
+            TraceRecorder.endSection();
+        }
+    }
+
+    /**
+     * 批量复制文件到外部
+     * <p>
+     * 1. 并发计算内容摘要，判断重复文件；
+     * 2. 使用 applyBatch 批量插入；
+     * 3. 并发复制(IoExecutors.storage())；
+     * 4. 使用 applyBatch 批量更新文件的处理状态，批量删除复制失败的Uri。
+     * <p>
+     * 注意：
+     * 耗时操作，不要在主线程和 IoExecutors.storage() 中调用
+     *
+     * @param context  context
+     * @param dirName  目录名(例如："/Pictures/WeChat"中的"WeChat")
+     * @param fileList fileList
+     * @return List 与 fileList 一一对应的结果，单个文件失败不影响其他文件
+     */
+    public static List<ExportResult> copyFilesToExternal(Context context, String dirName, List<File> fileList) {
+        int count = fileList.size();
+        ExportResult[] results = new ExportResult[count];
+        String[] digests = new String[count];
+        long startTime = FileOpsMetrics.begin();
+
+        TraceRecorder.beginSection("copyFilesToExternal");
+        try {
+            TraceRecorder.counter("exportFiles", count);
+
+            // 判断重复文件
+            checkDuplicates(context, dirName, fileList, results, digests);
+
+            // 批量插入
+            List<Integer> insertIndexList = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (results[i] == null) {
+                    insertIndexList.add(i);
+                }
+            }
+            Uri[] insertUris = insertAll(context, dirName, fileList, insertIndexList, results);
+
+            // 并发复制
+            copyAll(context, fileList, insertIndexList, insertUris, digests, results);
+
+            // 批量更新文件的处理状态，批量删除复制失败的Uri
+            publishAll(context, dirName, fileList, insertIndexList, insertUris, digests, results);
+        } finally {
+            TraceRecorder.endSection();
+        }
+
+        List<ExportResult> resultList = new ArrayList<>(count);
+        ExportResult failureResult = null;
+        for (int i = 0; i < count; i++) {
+            if (results[i] == null) {
+                // 等待被中断，未处理
+                results[i] = ExportResult.failure(fileList.get(i), new InterruptedIOException("export interrupted: " + fileList.get(i)));
+            }
+            if (failureResult == null && !results[i].isSuccess()) {
+                failureResult = results[i];
+            }
+            resultList.add(results[i]);
+        }
+        // 整批记录一次耗时，有文件失败时按第一个失败的异常类型记录(复制的字节数在 copyFileToUri 中记录)
+        if (failureResult == null) {
+            FileOpsMetrics.end(FileOpsMetrics.OP_COPY_FILES_TO_EXTERNAL, startTime);
+        } else {
+            FileOpsMetrics.fail(FileOpsMetrics.OP_COPY_FILES_TO_EXTERNAL, startTime, failureResult.getError());
+        }
+        return resultList;
+    }
+
+    /**
+     * 批量复制：并发计算内容摘要，判断重复文件(重复的文件直接设置结果)
+     *
+     * @param context  context
+     * @param dirName  目录名
+     * @param fileList fileList
+     * @param results  与 fileList 一一对应的结果
+     * @param digests  与 fileList 一一对应的内容摘要
+     */
+    private static void checkDuplicates(final Context context, final String dirName, List<File> fileList,
+                                        final ExportResult[] results, final String[] digests) {
+        final FileDigestIndex digestIndex = FileDigestIndex.getInstance(context);
+        ExecutorService executor = IoExecutors.storage();
+        TraceRecorder.beginSection("checkDuplicate");
+        try {
+            List<Future<?>> futureList = new ArrayList<>();
+            for (int i = 0; i < fileList.size(); i++) {
+                final int index = i;
+                final File file = fileList.get(i);
+                if (file == null || !file.exists()) {
+                    results[index] = ExportResult.failure(file, new FileNotFoundException(String.valueOf(file)));
+                    continue;
+                }
+                futureList.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        TraceRecorder.beginSection("getDigest", file);
+                        try {
+                            digests[index] = digestIndex.getDigest(file);
+                        } finally {
+                            TraceRecorder.endSection();
+                        }
+                        Uri uri = getDuplicateFileUri(context, file, digests[index], dirName);
+                        if (uri != null) {
+                            results[index] = ExportResult.success(file, uri, true);
+                        }
+                    }
+                }));
+            }
+            awaitAll(futureList);
+        } finally {
+            TraceRecorder.endSection();
+        }
+    }
+
+    /**
+     * 批量复制：使用 applyBatch 批量插入，批量失败时逐个插入(插入失败的文件直接设置结果)
+     *
+     * @param context         context
+     * @param dirName         目录名
+     * @param fileList        fileList
+     * @param insertIndexList 需要插入的文件位置
+     * @param results         与 fileList 一一对应的结果
+     * @return Uri[] 与 fileList 一一对应的插入的Uri(未插入为null)
+     */
+    private static Uri[] insertAll(Context context, String dirName, List<File> fileList, List<Integer> insertIndexList,
+                                   ExportResult[] results) {
+        Uri[] insertUris = new Uri[fileList.size()];
+        ContentResolver contentResolver = context.getContentResolver();
+        TraceRecorder.beginSection("insert");
+        try {
+            for (int start = 0; start < insertIndexList.size(); start += BATCH_SIZE) {
+                List<Integer> indexList = insertIndexList.subList(start, Math.min(start + BATCH_SIZE, insertIndexList.size()));
+                ArrayList<ContentProviderOperation> operationList = new ArrayList<>();
+                for (int index : indexList) {
+                    File file = fileList.get(index);
+                    operationList.add(ContentProviderOperation.newInsert(getContentUri(getMimeType(file)))
+                            .withValues(getInsertValues(file, dirName))
+                            .build());
+                }
+                try {
+                    ContentProviderResult[] providerResults = contentResolver.applyBatch(MediaStore.AUTHORITY, operationList);
+                    for (int i = 0; i < indexList.size(); i++) {
+                        insertUris[indexList.get(i)] = providerResults[i].uri;
+                    }
+                } catch (Exception e) {
+                    // 批量失败则逐个插入
+                    e.printStackTrace();
+                    for (int index : indexList) {
+                        File file = fileList.get(index);
+                        try {
+                            insertUris[index] = contentResolver.insert(getContentUri(getMimeType(file)), getInsertValues(file, dirName));
+                        } catch (Exception insertException) {
+                            results[index] = ExportResult.failure(file, insertException);
+                        }
+                    }
+                }
+            }
+        } finally {
+            TraceRecorder.endSection();
+        }
+        return insertUris;
+    }
+
+    /**
+     * 批量复制：并发复制到插入的Uri(IoExecutors.storage())
+     *
+     * @param context         context
+     * @param fileList        fileList
+     * @param insertIndexList 需要插入的文件位置
+     * @param insertUris      与 fileList 一一对应的插入的Uri
+     * @param digests         与 fileList 一一对应的内容摘要
+     * @param results         与 fileList 一一对应的结果
+     */
+    private static void copyAll(final Context context, List<File> fileList, List<Integer> insertIndexList, Uri[] insertUris,
+                                final String[] digests, final ExportResult[] results) {
+        ExecutorService executor = IoExecutors.storage();
+        TraceRecorder.beginSection("copy");
+        try {
+            List<Future<?>> futureList = new ArrayList<>();
+            for (final int index : insertIndexList) {
+                final File file = fileList.get(index);
+                final Uri uri = insertUris[index];
+                if (uri == null) {
+                    if (results[index] == null) {
+                        results[index] = ExportResult.failure(file, new IOException("insert failed: " + file));
+                    }
+                    continue;
+                }
+                futureList.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            copyFileToUri(context.getContentResolver(), file, uri, null, null);
+                            results[index] = ExportResult.success(file, uri, false);
+                        } catch (Exception e) {
+                            results[index] = ExportResult.failure(file, e);
+                        }
+                    }
+                }));
+            }
+            awaitAll(futureList);
+        } finally {
+            TraceRecorder.endSection();
+        }
+    }
+
+    /**
+     * 批量复制：使用 applyBatch 批量更新文件的处理状态，批量删除复制失败的Uri
+     * <p>
+     * 批量失败时逐个处理，更新失败的文件删除并设置为失败；更新成功后才记录导出的Uri
+     *
+     * @param context         context
+     * @param dirName         目录名
+     * @param fileList        fileList
+     * @param insertIndexList 需要插入的文件位置
+     * @param insertUris      与 fileList 一一对应的插入的Uri
+     * @param digests         与 fileList 一一对应的内容摘要
+     * @param results         与 fileList 一一对应的结果
+     */
+    private static void publishAll(Context context, String dirName, List<File> fileList, List<Integer> insertIndexList,
+                                   Uri[] insertUris, String[] digests, ExportResult[] results) {
+        FileDigestIndex digestIndex = FileDigestIndex.getInstance(context);
+        ContentResolver contentResolver = context.getContentResolver();
+        TraceRecorder.beginSection("update");
+        try {
+            List<Integer> operationIndexList = new ArrayList<>();
+            ArrayList<ContentProviderOperation> operationList = new ArrayList<>();
+            for (int index : insertIndexList) {
+                Uri uri = insertUris[index];
+                if (uri == null) {
+                    continue;
+                }
+                if (results[index] == null) {
+                    // 等待被中断，复制结果未知
+                    results[index] = ExportResult.failure(fileList.get(index), new InterruptedIOException("copy interrupted: " + fileList.get(index)));
+                }
+                if (results[index].isSuccess()) {
+                    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+                        digestIndex.putExportUri(digests[index], dirName, uri);
+                        continue;
+                    }
+                    operationList.add(ContentProviderOperation.newUpdate(uri)
+                            .withValue(MediaStore.MediaColumns.IS_PENDING, 0)// 文件的处理状态(防止写入过程中被其他App查询到，写入完成后记得修改回来)
+                            .build());
+                } else {
+                    operationList.add(ContentProviderOperation.newDelete(uri).build());
+                }
+                operationIndexList.add(index);
+            }
+            for (int start = 0; start < operationList.size(); start += BATCH_SIZE) {
+                int end = Math.min(start + BATCH_SIZE, operationList.size());
+                ArrayList<ContentProviderOperation> batchList = new ArrayList<>(operationList.subList(start, end));
+                List<Integer> indexList = operationIndexList.subList(start, end);
+                try {
+                    contentResolver.applyBatch(MediaStore.AUTHORITY, batchList);
+                    for (int index : indexList) {
+                        if (results[index].isSuccess()) {
+                            digestIndex.putExportUri(digests[index], dirName, insertUris[index]);
+                        }
+                    }
+                } catch (Exception e) {
+                    // 批量失败则逐个处理，更新失败的文件仍是待处理状态，需要删除并返回失败
+                    e.printStackTrace();
+                    for (int index : indexList) {
+                        File file = fileList.get(index);
+                        Uri uri = insertUris[index];
+                        if (results[index].isSuccess()) {
+                            try {
+                                ContentValues values = new ContentValues();
+                                values.put(MediaStore.MediaColumns.IS_PENDING, 0);
+                                if (contentResolver.update(uri, values, null, null) > 0) {
+                                    digestIndex.putExportUri(digests[index], dirName, uri);
+                                    continue;
+                                }
+                                results[index] = ExportResult.failure(file, new IOException("update failed: " + uri));
+                            } catch (Exception updateException) {
+                                results[index] = ExportResult.failure(file, updateException);
+                            }
+                        }
+                        delete(context, uri);
+                    }
+                }
+            }
+        } finally {
+            TraceRecorder.endSection();
+        }
+    }
+
+    /**
+     * 等待全部任务完成
+     *
+     * @param futureList futureList
+     */
+    private static void awaitAll(List<Future<?>> futureList) {
+        for (Future<?> future : futureList) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 复制文件到外部 回调
+     */
+    public interface ExportCallback {
+
+        /**
+         * 进度(节流，最多每 PROGRESS_INTERVAL_MILLIS 回调一次)
+         *
+         * @param bytes 已复制的字节数
+         * @param total 总字节数
+         */
+        void onProgress(long bytes, long total);
+
+        /**
+         * 完成
+         *
+         * @param uri uri(失败为null)
+         */
+        void onComplete(Uri uri);
+
+        /**
+         * 已取消(已插入的Uri已删除；复制完成后才取消的，仍然回调 onComplete)
+         */
+        void onCancel();
+    }
+
+    /**
+     * 复制文件到外部(异步)
+     * <p>
+     * 通过 {@link ExportJobQueue} 执行(大文件使用 {@link ResumableExporter} 续传)，回调在 callbackExecutor 执行；
+     * 第一次复制失败时立即回调 onComplete(null)，任务之后在后台按队列的规则重试，不再回调；
+     * 进程被杀死后任务仍会继续，但不再回调
+     *
+     * @param context          context
+     * @param dirName          目录名(例如："/Pictures/WeChat"中的"WeChat")
+     * @param file             file
+     * @param callbackExecutor 回调线程(例如：ContextCompat.getMainExecutor(context))
+     * @param callback         callback
+     * @return CancellationSignal 调用 cancel() 取消复制
+     */
+    public static CancellationSignal copyFileToExternalAsync(final Context context, final String dirName, final File file,
+                                                             final Executor callbackExecutor, final ExportCallback callback) {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        final ExportJobQueue jobQueue = ExportJobQueue.getInstance(context);
+        // 添加任务需要写入数据库，在IO线程执行
+        IoExecutors.io().execute(new Runnable() {
+            @Override
+            public void run() {
+                final long total = file == null ? 0 : file.length();
+                ExportJobQueue.JobListener listener = new ExportJobQueue.JobListener() {
+                    private long lastTime;
+
+                    @Override
+                    public void onProgress(final long bytes) {
+                        long time = SystemClock.elapsedRealtime();
+                        if (bytes < total && time - lastTime < PROGRESS_INTERVAL_MILLIS) {
+                            return;
+                        }
+                        lastTime = time;
+                        callbackExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!cancellationSignal.isCanceled()) {
+                                    callback.onProgress(bytes, total);
+                                }
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onFinish(final int state, final Uri uri) {
+                        callbackExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (state == ExportJob.STATE_CANCELED) {
+                                    callback.onCancel();
+                                } else {
+                                    callback.onComplete(state == ExportJob.STATE_SUCCEEDED ? uri : null);
+                                }
+                            }
+                        });
+                    }
+                };
+
+                long id;
+                try {
+                    id = jobQueue.enqueueExport(file, dirName, listener);
+                } catch (RuntimeException e) {
+                    // SQLiteException 等，必须回调结果，否则调用方会一直等待
+                    e.printStackTrace();
+                    id = -1;
+                }
+                if (id == -1) {
+                    listener.onFinish(ExportJob.STATE_FAILED, null);
+                    return;
+                }
+
+                final long jobId = id;
+                cancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                    @Override
+                    public void onCancel() {
+                        // 取消需要写入数据库，在IO线程执行(已添加任务前取消时立即回调)
+                        IoExecutors.io().execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                jobQueue.cancel(jobId);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+        return cancellationSignal;
+    }
+
+    /**
+     * 获取 重复文件Uri(根据内容摘要)
+     * <p>
+     * 1. 先查询摘要索引中导出到 dirName 的Uri，并校验Uri仍然有效；
+     * 2. 再查询 name+size 相同的文件，校验目录和内容摘要一致后才认为是重复文件。
+     *
+     * @param context context
+     * @param file    file
+     * @param digest  file的内容摘要(为null时不判断重复)
+     * @param dirName 目录名(例如："/Pictures/WeChat"中的"WeChat")
+     * @return Uri
+     */
+    static Uri getDuplicateFileUri(Context context, File file, String digest, String dirName) {
+        if (digest == null) {
+            return null;
+        }
+
+        String mimeType = getMimeType(file);
+        FileDigestIndex digestIndex = FileDigestIndex.getInstance(context);
+        Uri uri = digestIndex.getExportUri(digest, dirName);
+        if (uri != null) {
+            if (isExportedFile(context, uri, file.length(), mimeType, dirName)) {
+                digestIndex.putExportUri(digest, dirName, uri);// 升级前的记录补充目录名
+                return uri;
+            }
+            digestIndex.removeExportUri(uri);
+        }
+
+        uri = getDuplicateFileUri(context, file);
+        if (uri != null && isExportedFile(context, uri, file.length(), mimeType, dirName)) {
+            String uriDigest = null;
+            try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+                if (inputStream != null) {
+                    uriDigest = FileDigestIndex.computeDigest(inputStream);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            if (digest.equals(uriDigest)) {
+                digestIndex.putExportUri(digest, dirName, uri);
+                return uri;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否导出到指定目录的文件(Uri有效且大小一致，Android 10 及以上还需要相对路径一致)
+     * <p>
+     * Android 10 以下插入时不能指定目录，不校验目录
+     *
+     * @param context  context
+     * @param uri      uri
+     * @param size     源文件大小
+     * @param mimeType 源文件mimeType
+     * @param dirName  目录名
+     * @return boolean
+     */
+    private static boolean isExportedFile(Context context, Uri uri, long size, String mimeType, String dirName) {
+        boolean checkPath = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+        String[] projection = checkPath
+                ? new String[]{MediaStore.MediaColumns.SIZE, MediaStore.MediaColumns.RELATIVE_PATH}
+                : new String[]{MediaStore.MediaColumns.SIZE};
+        try (CursorReader reader = CursorReader.wrap(context.getContentResolver().query(uri, projection, null, null, null), projection)) {
+            if (reader == null || !reader.moveToNext() || reader.getLong(0, -1) != size) {
+                return false;
+            }
+            if (!checkPath) {
+                return true;
+            }
+            // 查询结果末尾带有"/"
+            String relativePath = reader.getString(1);
+            String expectedPath = getRelativePath(mimeType, dirName);
+            return relativePath != null && (relativePath.equals(expectedPath) || relativePath.equals(expectedPath + File.separatorChar));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
     /**
      * 复制
      * {@link android.os.FileUtils#copy(InputStream, OutputStream)}
+     * <p>
+     * 两端都是文件时使用 FileChannel.transferTo，见 {@link StreamCopier}
      *
      * @param inputStream  inputStream
      * @param outputStream outputStream
@@ -356,11 +1216,7 @@ public class FileUtils {
      */
     public static boolean copy(InputStream inputStream, OutputStream outputStream) {
         try {
-            byte[] buffer = new byte[8192];
-            int byteRead;
-            while ((byteRead = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, byteRead);
-            }
+            StreamCopier.copy(inputStream, outputStream);
             outputStream.flush();
             return true;
         } catch (Exception e) {
@@ -386,10 +1242,13 @@ public class FileUtils {
 
         ContentResolver contentResolver = context.getContentResolver();
 
+        long startTime = FileOpsMetrics.begin();
         try {
             delete = DocumentsContract.deleteDocument(contentResolver, uri);
+            FileOpsMetrics.end(FileOpsMetrics.OP_DELETE_SYSTEM, startTime);
         } catch (Exception e) {
             e.printStackTrace();
+            FileOpsMetrics.fail(FileOpsMetrics.OP_DELETE_SYSTEM, startTime, e);
         }
 
         return delete;
@@ -414,13 +1273,278 @@ public class FileUtils {
 
         ContentResolver contentResolver = context.getContentResolver();
 
+        long startTime = FileOpsMetrics.begin();
         try {
             delete = contentResolver.delete(uri, null, null) > 0;
+            FileOpsMetrics.end(FileOpsMetrics.OP_DELETE, startTime);
         } catch (Exception e) {
             e.printStackTrace();
+            FileOpsMetrics.fail(FileOpsMetrics.OP_DELETE, startTime, e);
         }
 
         return delete;
     }
 
+    /**
+     * 批量删除
+     * <p>
+     * 1. MediaStore 的Uri按集合分组，每组使用 _ID IN (...) 分段删除(每段 查询-删除-查询 共3次调用，代替每个Uri调用一次)；
+     * 2. 其他Uri(系统文件选择器返回的Uri等)逐个删除。
+     * <p>
+     * 其他App的文件无法直接删除，结果为 STATUS_NEEDS_PERMISSION，
+     * 使用 createDeleteRequest/requestDelete 一次请求用户授权全部文件。
+     * <p>
+     * 注意：
+     * 耗时操作，不要在主线程调用；没有读取权限时其他App的文件查询不到，结果为 STATUS_NOT_FOUND
+     *
+     * @param context context
+     * @param uriList uriList
+     * @return List 与 uriList 一一对应的结果
+     */
+    public static List<DeleteResult> delete(Context context, List<Uri> uriList) {
+        DeleteResult[] results = new DeleteResult[uriList.size()];
+        Map<Uri, List<Integer>> groupMap = new LinkedHashMap<>();// 集合 -> 该集合的Uri位置
+
+        TraceRecorder.beginSection("deleteAll");
+        try {
+            for (int i = 0; i < uriList.size(); i++) {
+                Uri uri = uriList.get(i);
+                if (uri == null) {
+                    results[i] = new DeleteResult(null, DeleteResult.STATUS_NOT_FOUND, null);
+                } else if (MediaStore.AUTHORITY.equals(uri.getAuthority()) && UriMetadata.parseId(uri) >= 0) {
+                    Uri collectionUri = UriMetadata.getCollectionUri(uri);
+                    List<Integer> indexList = groupMap.get(collectionUri);
+                    if (indexList == null) {
+                        indexList = new ArrayList<>();
+                        groupMap.put(collectionUri, indexList);
+                    }
+                    indexList.add(i);
+                } else {
+                    results[i] = deleteSingle(context, uri);
+                }
+            }
+            for (Map.Entry<Uri, List<Integer>> entry : groupMap.entrySet()) {
+                List<Integer> indexList = entry.getValue();
+                for (int start = 0; start < indexList.size(); start += QUERY_CHUNK_SIZE) {
+                    deleteMedia(context, entry.getKey(), uriList, indexList.subList(start, Math.min(start + QUERY_CHUNK_SIZE, indexList.size())), results);
+                }
+            }
+
+            // Android 10 批量删除时不会抛出 RecoverableSecurityException，在当前线程(非主线程)单独删除一次获取授权请求，
+            // createDeleteRequest 不需要再访问 ContentResolver
+            if (Build.VERSION.SDK_INT == Build.VERSION_CODES.Q) {
+                captureRecoverableSecurityException(context, results);
+            }
+
+            // 已删除的Uri不再作为重复文件使用
+            FileDigestIndex digestIndex = FileDigestIndex.getInstance(context);
+            for (DeleteResult result : results) {
+                if (result.isDeleted()) {
+                    digestIndex.removeExportUri(result.getUri());
+                }
+            }
+        } finally {
+            TraceRecorder.endSection();
+        }
+
+        List<DeleteResult> resultList = new ArrayList<>(results.length);
+        for (DeleteResult result : results) {
+            resultList.add(result);
+        }
+        return resultList;
+    }
+
+    /**
+     * 获取 RecoverableSecurityException(Android 10，每次只能请求一个Uri，只需要第一个需要授权的Uri的异常)
+     *
+     * @param context context
+     * @param results results
+     */
+    private static void captureRecoverableSecurityException(Context context, DeleteResult[] results) {
+        int firstIndex = -1;
+        for (int i = 0; i < results.length; i++) {
+            if (!results[i].isNeedsPermission()) {
+                continue;
+            }
+            if (results[i].getError() instanceof RecoverableSecurityException) {
+                return;
+            }
+            if (firstIndex < 0) {
+                firstIndex = i;
+            }
+        }
+        if (firstIndex >= 0) {
+            results[firstIndex] = deleteSingle(context, results[firstIndex].getUri());
+        }
+    }
+
+    /**
+     * 批量删除同一集合的MediaStore Uri
+     *
+     * @param context       context
+     * @param collectionUri collectionUri
+     * @param uriList       uriList
+     * @param indexList     本段Uri的位置(不超过 QUERY_CHUNK_SIZE)
+     * @param results       results
+     */
+    private static void deleteMedia(Context context, Uri collectionUri, List<Uri> uriList, List<Integer> indexList, DeleteResult[] results) {
+        ContentResolver contentResolver = context.getContentResolver();
+        List<Long> idList = new ArrayList<>(indexList.size());
+        for (int index : indexList) {
+            idList.add(UriMetadata.parseId(uriList.get(index)));
+        }
+
+        try {
+            // 删除前查询，区分不存在和删除失败
+            Set<Long> existSet = queryIds(contentResolver, collectionUri, idList);
+            Set<Long> remainSet = existSet;
+            if (!existSet.isEmpty()) {
+                List<Long> existList = new ArrayList<>(existSet);
+                String[] selectionArgs = new String[existList.size()];
+                for (int i = 0; i < selectionArgs.length; i++) {
+                    selectionArgs[i] = String.valueOf(existList.get(i));
+                }
+                String selection = MediaStore.MediaColumns._ID + " IN (" + getPlaceholders(selectionArgs.length) + ")";
+                int count = contentResolver.delete(collectionUri, selection, selectionArgs);
+                // 全部删除则不需要再查询(其他App的文件不会被删除，也不会抛出异常)
+                remainSet = count >= existList.size() ? new HashSet<Long>() : queryIds(contentResolver, collectionUri, existList);
+            }
+
+            for (int i = 0; i < indexList.size(); i++) {
+                int index = indexList.get(i);
+                long id = idList.get(i);
+                int status;
+                if (!existSet.contains(id)) {
+                    status = DeleteResult.STATUS_NOT_FOUND;
+                } else if (remainSet.contains(id)) {
+                    status = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? DeleteResult.STATUS_NEEDS_PERMISSION : DeleteResult.STATUS_FAILED;
+                } else {
+                    status = DeleteResult.STATUS_DELETED;
+                }
+                results[index] = new DeleteResult(uriList.get(index), status, null);
+            }
+        } catch (Exception e) {
+            // 批量失败则逐个删除
+            e.printStackTrace();
+            for (int index : indexList) {
+                results[index] = deleteSingle(context, uriList.get(index));
+            }
+        }
+    }
+
+    /**
+     * 查询 存在的_ID
+     *
+     * @param contentResolver contentResolver
+     * @param collectionUri   collectionUri
+     * @param idList          idList(不超过 QUERY_CHUNK_SIZE)
+     * @return Set<Long>
+     */
+    private static Set<Long> queryIds(ContentResolver contentResolver, Uri collectionUri, List<Long> idList) {
+        Set<Long> idSet = new HashSet<>();
+        String[] projection = new String[]{MediaStore.MediaColumns._ID};
+        String[] selectionArgs = new String[idList.size()];
+        for (int i = 0; i < selectionArgs.length; i++) {
+            selectionArgs[i] = String.valueOf(idList.get(i));
+        }
+        String selection = MediaStore.MediaColumns._ID + " IN (" + getPlaceholders(selectionArgs.length) + ")";
+        try (CursorReader reader = CursorReader.wrap(contentResolver.query(collectionUri, projection, selection, selectionArgs, null), projection)) {
+            if (reader != null) {
+                while (reader.moveToNext()) {
+                    idSet.add(reader.getLong(0));
+                }
+            }
+        }
+        return idSet;
+    }
+
+    /**
+     * 删除单个Uri
+     *
+     * @param context context
+     * @param uri     uri
+     * @return DeleteResult
+     */
+    private static DeleteResult deleteSingle(Context context, Uri uri) {
+        ContentResolver contentResolver = context.getContentResolver();
+        try {
+            boolean delete;
+            if (DocumentsContract.isDocumentUri(context, uri)) {
+                delete = DocumentsContract.deleteDocument(contentResolver, uri);
+            } else {
+                delete = contentResolver.delete(uri, null, null) > 0;
+            }
+            return new DeleteResult(uri, delete ? DeleteResult.STATUS_DELETED : DeleteResult.STATUS_NOT_FOUND, null);
+        } catch (SecurityException e) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && e instanceof RecoverableSecurityException) {
+                return new DeleteResult(uri, DeleteResult.STATUS_NEEDS_PERMISSION, e);
+            }
+            e.printStackTrace();
+            return new DeleteResult(uri, DeleteResult.STATUS_FAILED, e);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new DeleteResult(uri, DeleteResult.STATUS_FAILED, e);
+        }
+    }
+
+    /**
+     * 创建 删除请求(请求用户授权删除其他App的文件)
+     * <p>
+     * Android 11 及以上：所有 STATUS_NEEDS_PERMISSION 的Uri合并为一次请求，用户同意后由系统删除；
+     * Android 10：每次只能请求一个Uri(使用 delete 时获取的 RecoverableSecurityException)，用户同意后需要再次调用 delete；
+     * Android 10 以下：不需要授权，返回null。
+     *
+     * @param context    context
+     * @param resultList delete 的结果
+     * @return IntentSender(没有需要授权的Uri时返回null)
+     */
+    public static IntentSender createDeleteRequest(Context context, List<DeleteResult> resultList) {
+        List<Uri> uriList = new ArrayList<>();
+        for (DeleteResult result : resultList) {
+            if (result.isNeedsPermission()) {
+                uriList.add(result.getUri());
+            }
+        }
+        if (uriList.isEmpty()) {
+            return null;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return MediaStore.createDeleteRequest(context.getContentResolver(), uriList).getIntentSender();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            // delete 时已在工作线程获取了异常，这里不访问 ContentResolver，可以在主线程调用
+            for (DeleteResult result : resultList) {
+                if (result.isNeedsPermission() && result.getError() instanceof RecoverableSecurityException) {
+                    return ((RecoverableSecurityException) result.getError()).getUserAction().getActionIntent().getIntentSender();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 请求用户授权删除其他App的文件
+     * <p>
+     * 结果在 Activity.onActivityResult 中返回(RESULT_OK 为同意)
+     *
+     * @param activity    activity
+     * @param resultList  delete 的结果
+     * @param requestCode requestCode
+     * @return boolean 是否发起了请求
+     */
+    public static boolean requestDelete(Activity activity, List<DeleteResult> resultList, int requestCode) {
+        IntentSender intentSender = createDeleteRequest(activity, resultList);
+        if (intentSender == null) {
+            return false;
+        }
+        try {
+            activity.startIntentSenderForResult(intentSender, requestCode, null, 0, 0, 0);
+            return true;
+        } catch (IntentSender.SendIntentException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
 }
@@ -0,0 +1,299 @@
+package com.mask.sharelibrary;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Log飞行记录器
+ * <p>
+ * 常驻内存的固定大小环形缓冲区，Release包也会记录，用于崩溃或出问题时导出最近的Log：
+ * 1. 记录为紧凑的数组结构(时间、级别、线程id、tag id、消息字符)，写入时不分配对象；
+ * 2. 多线程通过 getAndIncrement 获取序号后各自写入对应的槽位，无锁；
+ * 3. 每个槽位有版本号(写入中为-1)：写入前通过 CAS 把版本号改为-1 占有槽位(绕回同一槽位的多个写入不会交错)，
+ * 读取后通过 CAS(seq, seq) 校验版本号未变化才认为有效(CAS 保证读取数据在校验之前完成)，缓冲区满后覆盖最旧的记录；
+ * 4. 消息超过 MAX_MESSAGE_LENGTH 会被截断。
+ */
+public final class FlightRecorder {
+
+    /**
+     * 记录数(2的幂)
+     */
+    private static final int CAPACITY = 1024;
+    private static final int MASK = CAPACITY - 1;
+
+    /**
+     * 单条消息最大字符数
+     */
+    private static final int MAX_MESSAGE_LENGTH = 160;
+
+    /**
+     * 最大tag数(超出时使用 OTHER_TAG_ID)
+     */
+    private static final int MAX_TAG_COUNT = 1024;
+    private static final int OTHER_TAG_ID = 0;
+
+    private static final char[] PRIORITY_CHARS = {' ', ' ', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+    /**
+     * 槽位版本号：写入中/未写入
+     */
+    private static final long STAMP_WRITING = -1;
+    private static final long STAMP_EMPTY = -2;
+
+    /**
+     * 等待其他线程写入同一槽位的最大次数(超出时放弃本条记录，避免写入线程异常退出后一直等待)
+     */
+    private static final int MAX_ACQUIRE_SPINS = 1000;
+
+    private static final AtomicLong sequence = new AtomicLong();
+    private static final AtomicLongArray stamps = new AtomicLongArray(CAPACITY);
+
+    private static final long[] times = new long[CAPACITY];
+    private static final int[] tids = new int[CAPACITY];
+    private static final byte[] priorities = new byte[CAPACITY];
+    private static final short[] tagIds = new short[CAPACITY];
+    private static final short[] lengths = new short[CAPACITY];
+    private static final char[] messages = new char[CAPACITY * MAX_MESSAGE_LENGTH];
+
+    private static final ConcurrentHashMap<String, Integer> tagIdMap = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<String> tagNames = new AtomicReferenceArray<>(MAX_TAG_COUNT);
+    private static final AtomicInteger tagCount = new AtomicInteger(1);
+
+    /**
+     * 最低记录级别
+     */
+    private static volatile int minPriority = Log.INFO;
+
+    private static final AtomicBoolean crashHandlerInstalled = new AtomicBoolean();
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            stamps.set(i, STAMP_EMPTY);
+        }
+        tagNames.set(OTHER_TAG_ID, "?");
+    }
+
+    private FlightRecorder() {
+    }
+
+    /**
+     * 设置 最低记录级别
+     *
+     * @param priority Log.VERBOSE/Log.DEBUG/Log.INFO/Log.WARN/Log.ERROR/Log.ASSERT
+     */
+    public static void setMinPriority(int priority) {
+        minPriority = priority;
+    }
+
+    /**
+     * 是否记录该级别
+     * <p>
+     * 生成记录内容开销较大(例如需要格式化)时，可以先判断再生成
+     *
+     * @param priority priority
+     * @return boolean
+     */
+    public static boolean isLoggable(int priority) {
+        return priority >= minPriority;
+    }
+
+    /**
+     * 记录(message为null时记录tr)
+     *
+     * @param priority priority
+     * @param tag      tag
+     * @param message  message
+     * @param tr       tr
+     */
+    public static void record(int priority, String tag, String message, Throwable tr) {
+        if (message == null && tr != null && priority >= minPriority) {
+            message = tr.toString();
+        }
+        record(priority, tag, message);
+    }
+
+    /**
+     * 记录
+     *
+     * @param priority priority
+     * @param tag      tag
+     * @param message  message
+     */
+    public static void record(int priority, String tag, String message) {
+        if (priority < minPriority || message == null) {
+            return;
+        }
+
+        long seq = sequence.getAndIncrement();
+        int slot = (int) (seq & MASK);
+        if (!acquireSlot(slot, seq)) {
+            return;// 槽位已被更新的记录占用
+        }
+        times[slot] = System.currentTimeMillis();
+        tids[slot] = Process.myTid();
+        priorities[slot] = (byte) priority;
+        tagIds[slot] = (short) internTag(tag);
+        int length = Math.min(message.length(), MAX_MESSAGE_LENGTH);
+        message.getChars(0, length, messages, slot * MAX_MESSAGE_LENGTH);
+        lengths[slot] = (short) length;
+        stamps.set(slot, seq);// 写入完成
+    }
+
+    /**
+     * 占有槽位(版本号改为写入中)
+     * <p>
+     * CAS 同时保证之后的写入不会重排到占有之前；
+     * 缓冲区绕回时可能有另一个线程正在写入同一槽位，等待其完成，槽位已被更新的记录占用或等待超时时放弃
+     *
+     * @param slot slot
+     * @param seq  seq
+     * @return boolean 是否占有成功
+     */
+    private static boolean acquireSlot(int slot, long seq) {
+        int spins = 0;
+        while (true) {
+            long stamp = stamps.get(slot);
+            if (stamp == STAMP_WRITING) {
+                if (++spins > MAX_ACQUIRE_SPINS) {
+                    return false;
+                }
+                Thread.yield();
+                continue;
+            }
+            if (stamp > seq) {
+                return false;
+            }
+            if (stamps.compareAndSet(slot, stamp, STAMP_WRITING)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 导出为字符串(从旧到新)
+     *
+     * @return String
+     */
+    public static String dump() {
+        StringBuilder builder = new StringBuilder(CAPACITY * 64);
+        dump(builder);
+        return builder.toString();
+    }
+
+    /**
+     * 导出到文件(覆盖)
+     *
+     * @param file file
+     * @return boolean
+     */
+    public static boolean dump(File file) {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            return false;
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"))) {
+            writer.write(dump());
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * 安装崩溃处理(崩溃时导出到文件，再交给原来的处理，只安装一次)
+     *
+     * @param file file
+     */
+    public static void installCrashHandler(final File file) {
+        if (!crashHandlerInstalled.compareAndSet(false, true)) {
+            return;
+        }
+        final Thread.UncaughtExceptionHandler defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable throwable) {
+                try {
+                    record(Log.ASSERT, "Crash", thread.getName() + ": " + throwable);
+                    dump(file);
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                }
+                if (defaultHandler != null) {
+                    defaultHandler.uncaughtException(thread, throwable);
+                }
+            }
+        });
+    }
+
+    private static void dump(StringBuilder builder) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+        Date date = new Date();
+        long end = sequence.get();
+        long start = Math.max(0, end - CAPACITY);
+        for (long seq = start; seq < end; seq++) {
+            int slot = (int) (seq & MASK);
+            if (stamps.get(slot) != seq) {
+                continue;// 写入中或已被覆盖
+            }
+            long time = times[slot];
+            int tid = tids[slot];
+            int priority = priorities[slot];
+            int tagId = tagIds[slot];
+            int length = lengths[slot];
+            String message = new String(messages, slot * MAX_MESSAGE_LENGTH, length);
+            if (!stamps.compareAndSet(slot, seq, seq)) {
+                continue;// 读取过程中被覆盖(CAS 有写语义，之前的读取不会重排到校验之后)
+            }
+
+            date.setTime(time);
+            builder.append(dateFormat.format(date))
+                    .append(' ').append(tid)
+                    .append(' ').append(priority >= 0 && priority < PRIORITY_CHARS.length ? PRIORITY_CHARS[priority] : '?')
+                    .append('/').append(tagNames.get(tagId))
+                    .append(": ").append(message)
+                    .append('\n');
+        }
+    }
+
+    /**
+     * 获取 tag id(首次出现时分配)
+     *
+     * @param tag tag
+     * @return int
+     */
+    private static int internTag(String tag) {
+        if (tag == null) {
+            return OTHER_TAG_ID;
+        }
+        Integer id = tagIdMap.get(tag);
+        if (id != null) {
+            return id;
+        }
+        int newId = tagCount.getAndIncrement();
+        if (newId >= MAX_TAG_COUNT) {
+            tagCount.set(MAX_TAG_COUNT);
+            return OTHER_TAG_ID;
+        }
+        tagNames.set(newId, tag);
+        Integer oldId = tagIdMap.putIfAbsent(tag, newId);
+        return oldId == null ? newId : oldId;
+    }
+
+}
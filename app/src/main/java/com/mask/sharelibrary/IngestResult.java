@@ -0,0 +1,81 @@
+package com.mask.sharelibrary;
+
+import android.net.Uri;
+
+import java.io.File;
+
+/**
+ * 导入外部Uri 的单个Uri结果
+ */
+public class IngestResult {
+
+    private final UriMetadata metadata;
+    private final File file;
+    private final boolean duplicate;
+    private final Exception error;
+
+    IngestResult(UriMetadata metadata, File file, boolean duplicate, Exception error) {
+        this.metadata = metadata;
+        this.file = file;
+        this.duplicate = duplicate;
+        this.error = error;
+    }
+
+    static IngestResult success(UriMetadata metadata, File file, boolean duplicate) {
+        return new IngestResult(metadata, file, duplicate, null);
+    }
+
+    static IngestResult failure(UriMetadata metadata, Exception error) {
+        return new IngestResult(metadata, null, false, error);
+    }
+
+    public Uri getUri() {
+        return metadata.getUri();
+    }
+
+    public UriMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * 获取 导入后的文件
+     *
+     * @return File(失败为null；重复时为已有的文件)
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 是否重复文件(内容与已导入的文件相同，没有保留新文件)
+     *
+     * @return boolean
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    /**
+     * 获取 失败原因
+     *
+     * @return Exception(成功为null)
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return file != null;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestResult{" +
+                "uri=" + metadata.getUri() +
+                ", file=" + file +
+                ", duplicate=" + duplicate +
+                ", error=" + error +
+                '}';
+    }
+
+}
@@ -0,0 +1,388 @@
+package com.mask.sharelibrary;
+
+import android.content.ClipData;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导入外部Uri(例如：其他App分享过来的 ACTION_SEND/ACTION_SEND_MULTIPLE)
+ * <p>
+ * 1. 在后台线程批量获取Uri信息(UriMetadata)；
+ * 2. 并发复制到App目录(最多 MAX_PARALLELISM 个同时进行)，复制时同时计算内容摘要；
+ * 3. 按内容摘要去重(本次导入的和之前导入的)，重复时删除新文件，返回已有的文件；
+ * 4. 节流回调进度。
+ * <p>
+ * 注意：
+ * Intent 授予的临时读取权限只在接收的Activity存在期间有效，导入完成前不要 finish
+ */
+public class IngestionPipeline {
+
+    /**
+     * 同时复制的最大数量
+     */
+    private static final int MAX_PARALLELISM = 4;
+
+    /**
+     * 进度回调间隔
+     */
+    private static final long PROGRESS_INTERVAL_MILLIS = 100;
+
+    private static final String DEFAULT_NAME = "file";
+
+    private IngestionPipeline() {
+    }
+
+    /**
+     * 导入回调(在 callbackExecutor 中回调)
+     */
+    public interface Callback {
+
+        /**
+         * 进度(节流，最多每 PROGRESS_INTERVAL_MILLIS 回调一次)
+         *
+         * @param completedCount 已完成数
+         * @param totalCount     总数
+         * @param bytes          已复制的字节数
+         * @param totalBytes     总字节数(只包括能获取到大小的Uri)
+         */
+        void onProgress(int completedCount, int totalCount, long bytes, long totalBytes);
+
+        /**
+         * 完成
+         *
+         * @param resultList 与Uri顺序一致
+         */
+        void onComplete(List<IngestResult> resultList);
+
+        void onCancel();
+    }
+
+    /**
+     * 获取 Intent中的Uri(EXTRA_STREAM、ClipData、Data，去重)
+     *
+     * @param intent intent
+     * @return List<Uri>
+     */
+    public static List<Uri> getUris(Intent intent) {
+        Set<Uri> uriSet = new LinkedHashSet<>();
+        if (Intent.ACTION_SEND_MULTIPLE.equals(intent.getAction())) {
+            List<Parcelable> streamList = intent.getParcelableArrayListExtra(Intent.EXTRA_STREAM);
+            if (streamList != null) {
+                for (Parcelable stream : streamList) {
+                    if (stream instanceof Uri) {
+                        uriSet.add((Uri) stream);
+                    }
+                }
+            }
+        } else {
+            Parcelable stream = intent.getParcelableExtra(Intent.EXTRA_STREAM);
+            if (stream instanceof Uri) {
+                uriSet.add((Uri) stream);
+            }
+        }
+        ClipData clipData = intent.getClipData();
+        if (clipData != null) {
+            for (int i = 0; i < clipData.getItemCount(); i++) {
+                Uri uri = clipData.getItemAt(i).getUri();
+                if (uri != null) {
+                    uriSet.add(uri);
+                }
+            }
+        }
+        if (intent.getData() != null) {
+            uriSet.add(intent.getData());
+        }
+        return new ArrayList<>(uriSet);
+    }
+
+    /**
+     * 导入(异步)
+     *
+     * @param context          context
+     * @param uriList          uriList
+     * @param dir              导入目录
+     * @param callbackExecutor 回调线程(例如：ContextCompat.getMainExecutor(context))
+     * @param callback         callback
+     * @return CancellationSignal 用于取消
+     */
+    public static CancellationSignal ingestAsync(Context context, final List<Uri> uriList, final File dir,
+                                                 final Executor callbackExecutor, final Callback callback) {
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        final Context appContext = context.getApplicationContext();
+        IoExecutors.io().execute(new Runnable() {
+            @Override
+            public void run() {
+                Progress progress = new Progress(uriList.size()) {
+                    @Override
+                    void onProgress(final int completedCount, final int totalCount, final long bytes, final long totalBytes) {
+                        callbackExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (!cancellationSignal.isCanceled()) {
+                                    callback.onProgress(completedCount, totalCount, bytes, totalBytes);
+                                }
+                            }
+                        });
+                    }
+                };
+
+                Runnable resultRunnable;
+                try {
+                    final List<IngestResult> resultList = ingest(appContext, uriList, dir, cancellationSignal, progress);
+                    resultRunnable = new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onComplete(resultList);
+                        }
+                    };
+                } catch (OperationCanceledException e) {
+                    resultRunnable = new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onCancel();
+                        }
+                    };
+                }
+                callbackExecutor.execute(resultRunnable);
+            }
+        });
+        return cancellationSignal;
+    }
+
+    /**
+     * 导入(同步，在当前线程等待)
+     * <p>
+     * 复制在 IoExecutors.storage() 中执行，不要在 storage() 中调用
+     *
+     * @param context            context
+     * @param uriList            uriList
+     * @param dir                导入目录
+     * @param cancellationSignal 取消信号
+     * @param progress           进度
+     * @return List<IngestResult> 与Uri顺序一致
+     */
+    private static List<IngestResult> ingest(final Context context, List<Uri> uriList, final File dir,
+                                             final CancellationSignal cancellationSignal, final Progress progress) {
+        if (uriList.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            IOException error = new IOException("mkdirs failed: " + dir);
+            List<IngestResult> resultList = new ArrayList<>(uriList.size());
+            for (UriMetadata metadata : UriMetadata.resolve(context, uriList)) {
+                resultList.add(IngestResult.failure(metadata, error));
+            }
+            return resultList;
+        }
+
+        // 批量获取Uri信息
+        final List<UriMetadata> metadataList = UriMetadata.resolve(context, uriList);
+        long totalBytes = 0;
+        for (UriMetadata metadata : metadataList) {
+            totalBytes += Math.max(0, metadata.getSize());
+        }
+        progress.setTotalBytes(totalBytes);
+
+        // 并发复制
+        final IngestResult[] results = new IngestResult[metadataList.size()];
+        final Map<String, File> digestMap = new ConcurrentHashMap<>();
+        final Semaphore semaphore = new Semaphore(MAX_PARALLELISM);
+        boolean canceled = false;
+        for (int i = 0; i < metadataList.size(); i++) {
+            if (cancellationSignal.isCanceled()) {
+                canceled = true;
+                break;
+            }
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                canceled = true;
+                break;
+            }
+            final int index = i;
+            IoExecutors.storage().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        results[index] = ingest(context, metadataList.get(index), dir, digestMap, cancellationSignal, progress);
+                    } catch (OperationCanceledException e) {
+                        // 等待所有任务结束后统一处理
+                    } finally {
+                        progress.complete();
+                        semaphore.release();
+                    }
+                }
+            });
+        }
+
+        // 等待进行中的任务结束(取消时任务会尽快结束并清理临时文件)
+        semaphore.acquireUninterruptibly(MAX_PARALLELISM);
+        semaphore.release(MAX_PARALLELISM);
+        if (canceled || cancellationSignal.isCanceled()) {
+            throw new OperationCanceledException();
+        }
+        progress.report(true);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 导入单个Uri
+     *
+     * @return IngestResult
+     */
+    private static IngestResult ingest(Context context, UriMetadata metadata, File dir, Map<String, File> digestMap,
+                                       CancellationSignal cancellationSignal, final Progress progress) {
+        ContentResolver contentResolver = context.getContentResolver();
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile("ingest", ".tmp", dir);
+            MessageDigest messageDigest = FileDigestIndex.newMessageDigest();
+            try (InputStream inputStream = contentResolver.openInputStream(metadata.getUri());
+                 OutputStream outputStream = new DigestOutputStream(new FileOutputStream(tempFile), messageDigest)) {
+                if (inputStream == null) {
+                    throw new FileNotFoundException("openInputStream failed: " + metadata.getUri());
+                }
+                StreamCopier.copy(inputStream, outputStream, cancellationSignal, new StreamCopier.ProgressListener() {
+                    private long lastBytes;
+
+                    @Override
+                    public void onProgress(long bytes) {
+                        progress.addBytes(bytes - lastBytes);
+                        lastBytes = bytes;
+                    }
+                });
+            }
+            String digest = FileDigestIndex.toHex(messageDigest.digest());
+
+            // 去重和重命名需要原子执行，否则内容相同的两个Uri可能都被保留
+            FileDigestIndex digestIndex = FileDigestIndex.getInstance(context);
+            synchronized (IngestionPipeline.class) {
+                File file = digestMap.get(digest);
+                if (file == null) {
+                    file = digestIndex.findFile(digest, dir);
+                }
+                if (file != null) {
+                    tempFile.delete();
+                    return IngestResult.success(metadata, file, true);
+                }
+
+                file = getUniqueFile(dir, metadata.getName());
+                if (!tempFile.renameTo(file)) {
+                    throw new IOException("rename failed: " + file);
+                }
+                digestMap.put(digest, file);
+                digestIndex.putDigest(file, digest);
+                return IngestResult.success(metadata, file, false);
+            }
+        } catch (OperationCanceledException e) {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            return IngestResult.failure(metadata, e);
+        }
+    }
+
+    /**
+     * 获取 不重复的文件(已存在时添加序号，例如："a (1).jpg")
+     *
+     * @param dir  dir
+     * @param name name(可为null)
+     * @return File
+     */
+    private static File getUniqueFile(File dir, String name) {
+        if (TextUtils.isEmpty(name)) {
+            name = DEFAULT_NAME;
+        }
+        name = name.replace(File.separatorChar, '_');// 防止跳出导入目录
+        if (".".equals(name) || "..".equals(name)) {
+            name = DEFAULT_NAME;
+        }
+
+        File file = new File(dir, name);
+        int index = name.lastIndexOf('.');
+        String baseName = index > 0 ? name.substring(0, index) : name;
+        String extension = index > 0 ? name.substring(index) : "";
+        for (int i = 1; file.exists(); i++) {
+            file = new File(dir, baseName + " (" + i + ")" + extension);
+        }
+        return file;
+    }
+
+    /**
+     * 进度(多个线程累加，节流回调)
+     */
+    private abstract static class Progress {
+        private final int totalCount;
+        private final AtomicInteger completedCount = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile long totalBytes;
+        private long lastTime;
+
+        Progress(int totalCount) {
+            this.totalCount = totalCount;
+        }
+
+        void setTotalBytes(long totalBytes) {
+            this.totalBytes = totalBytes;
+        }
+
+        void addBytes(long delta) {
+            bytes.addAndGet(delta);
+            report(false);
+        }
+
+        void complete() {
+            completedCount.incrementAndGet();
+            report(false);
+        }
+
+        void report(boolean force) {
+            synchronized (this) {
+                long time = SystemClock.elapsedRealtime();
+                if (!force && time - lastTime < PROGRESS_INTERVAL_MILLIS) {
+                    return;
+                }
+                lastTime = time;
+            }
+            onProgress(completedCount.get(), totalCount, bytes.get(), totalBytes);
+        }
+
+        abstract void onProgress(int completedCount, int totalCount, long bytes, long totalBytes);
+    }
+
+}
@@ -1,17 +1,33 @@
 package com.mask.sharelibrary;
 
 import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.widget.ProgressBar;
+import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.util.List;
 
 public class IntentHandleActivity extends AppCompatActivity {
 
+    private TextView tv_progress;
+    private ProgressBar progress_bar;
+
+    private CancellationSignal ingestSignal;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_intent_handle);
 
+        tv_progress = findViewById(R.id.tv_progress);
+        progress_bar = findViewById(R.id.progress_bar);
+
         Intent intent = getIntent();
         Bundle extras = intent.getExtras();
         String action = intent.getAction();
@@ -27,5 +43,61 @@ public class IntentHandleActivity extends AppCompatActivity {
             }
         }
         LogUtil.i("Intent: " + intent);
+
+        if (savedInstanceState == null) {
+            ingest(IngestionPipeline.getUris(intent));
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // 退出后临时读取权限失效，取消导入
+        if (ingestSignal != null && isFinishing()) {
+            ingestSignal.cancel();
+        }
+    }
+
+    /**
+     * 导入分享过来的Uri(导入期间不要 finish，否则临时读取权限会失效)
+     *
+     * @param uriList uriList
+     */
+    private void ingest(List<Uri> uriList) {
+        if (uriList.isEmpty()) {
+            return;
+        }
+
+        File dir = new File(getFilesDir(), "ingest");
+        ingestSignal = IngestionPipeline.ingestAsync(this, uriList, dir, ContextCompat.getMainExecutor(this), new IngestionPipeline.Callback() {
+            @Override
+            public void onProgress(int completedCount, int totalCount, long bytes, long totalBytes) {
+                tv_progress.setText(completedCount + "/" + totalCount);
+                // 读取的字节数可能超过查询到的大小(大小未知或不准确)
+                int progress = totalBytes > 0 ? (int) Math.min(100, bytes * 100 / totalBytes) : completedCount * 100 / totalCount;
+                progress_bar.setProgress(Math.max(0, Math.min(100, progress)));
+            }
+
+            @Override
+            public void onComplete(List<IngestResult> resultList) {
+                int duplicateCount = 0;
+                int failureCount = 0;
+                for (IngestResult result : resultList) {
+                    LogUtil.i("Ingest Result: " + result);
+                    if (!result.isSuccess()) {
+                        failureCount++;
+                    } else if (result.isDuplicate()) {
+                        duplicateCount++;
+                    }
+                }
+                tv_progress.setText(getString(R.string.ingest_complete, resultList.size(), duplicateCount, failureCount));
+                progress_bar.setProgress(100);
+            }
+
+            @Override
+            public void onCancel() {
+                LogUtil.i("Ingest Cancel");
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,129 @@
+package com.mask.sharelibrary;
+
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * IO线程池
+ * <p>
+ * 文件复制、MediaStore 读写等耗时操作统一在这里执行，不要在主线程执行。
+ */
+public class IoExecutors {
+
+    /**
+     * IO线程数(存储设备并发读写过多反而会变慢)
+     */
+    private static final int IO_THREAD_COUNT = 2;
+
+    /**
+     * 批量读写线程数(闪存有一定的并发能力，但过多线程会互相抢占带宽)
+     */
+    private static final int STORAGE_THREAD_COUNT = 4;
+
+    /**
+     * 空闲线程存活时间
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile ExecutorService ioExecutor;
+    private static volatile ExecutorService storageExecutor;
+    private static volatile ExecutorService pipelineExecutor;
+
+    private IoExecutors() {
+    }
+
+    /**
+     * 获取 IO线程池
+     *
+     * @return ExecutorService
+     */
+    public static ExecutorService io() {
+        if (ioExecutor == null) {
+            synchronized (IoExecutors.class) {
+                if (ioExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(IO_THREAD_COUNT, IO_THREAD_COUNT,
+                            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                            newThreadFactory("FileUtils-IO"));
+                    executor.allowCoreThreadTimeOut(true);
+                    ioExecutor = executor;
+                }
+            }
+        }
+        return ioExecutor;
+    }
+
+    /**
+     * 获取 批量读写线程池
+     * <p>
+     * 用于批量操作内部的并发读写，批量操作本身不要在这里执行(会等待自身的任务而死锁)
+     *
+     * @return ExecutorService
+     */
+    public static ExecutorService storage() {
+        if (storageExecutor == null) {
+            synchronized (IoExecutors.class) {
+                if (storageExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(STORAGE_THREAD_COUNT, STORAGE_THREAD_COUNT,
+                            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                            newThreadFactory("FileUtils-Storage"));
+                    executor.allowCoreThreadTimeOut(true);
+                    storageExecutor = executor;
+                }
+            }
+        }
+        return storageExecutor;
+    }
+
+    /**
+     * 获取 流水线复制的读取线程池
+     * <p>
+     * 每个流水线复制占用一个读取线程，不排队(排队时写入线程会一直等待读取线程)，空闲线程超时后回收
+     *
+     * @return ExecutorService
+     */
+    public static ExecutorService pipeline() {
+        if (pipelineExecutor == null) {
+            synchronized (IoExecutors.class) {
+                if (pipelineExecutor == null) {
+                    pipelineExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+                            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                            newThreadFactory("FileUtils-Pipeline"));
+                }
+            }
+        }
+        return pipelineExecutor;
+    }
+
+    /**
+     * 创建 ThreadFactory(后台优先级)
+     *
+     * @param name 线程名前缀
+     * @return ThreadFactory
+     */
+    public static ThreadFactory newThreadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+}
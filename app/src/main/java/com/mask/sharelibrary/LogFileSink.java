@@ -0,0 +1,362 @@
+package com.mask.sharelibrary;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Log文件输出
+ * <p>
+ * 1. 调用线程只把记录放入有界的无锁队列，队列满时丢弃并计数；
+ * 2. 单个后台线程批量取出记录写入文件；
+ * 3. 文件超过 maxFileSize(按UTF-8编码后的字节数计算)时滚动，旧文件在后台压缩为 .gz，最多保留 maxFileCount 个；
+ * 4. installCrashHandler 后，崩溃时同步写入队列中剩余的记录。
+ */
+public class LogFileSink {
+
+    private static final String FILE_NAME = "log.txt";
+    private static final String FILE_PREFIX = "log-";
+    private static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * 队列容量
+     */
+    private static final int QUEUE_CAPACITY = 4096;
+
+    /**
+     * 单批最大写入数
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * 队列为空时的等待时间
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final char[] PRIORITY_CHARS = {' ', ' ', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+    private final File dir;
+    private final long maxFileSize;
+    private final int maxFileCount;
+
+    private final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicLong dropCount = new AtomicLong();
+
+    private final Thread writerThread;
+    private final ExecutorService compressExecutor = Executors.newSingleThreadExecutor(IoExecutors.newThreadFactory("LogFileSink-Gzip"));
+
+    /**
+     * 写入锁(后台线程和崩溃时的同步写入)
+     */
+    private final Object writeLock = new Object();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+    private final StringBuilder lineBuilder = new StringBuilder(256);
+    private Writer writer;
+    private long fileSize;
+
+    /**
+     * @param dir          Log目录
+     * @param maxFileSize  单个文件最大字节数
+     * @param maxFileCount 最多保留的文件数(包括当前文件)
+     */
+    public LogFileSink(File dir, long maxFileSize, int maxFileCount) {
+        this.dir = dir;
+        this.maxFileSize = maxFileSize;
+        this.maxFileCount = Math.max(1, maxFileCount);
+
+        writerThread = IoExecutors.newThreadFactory("LogFileSink").newThread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        });
+        writerThread.start();
+    }
+
+    /**
+     * 添加记录(无锁，队列满时丢弃)
+     *
+     * @param priority priority
+     * @param tag      tag
+     * @param content  content
+     * @param tr       tr
+     */
+    public void offer(int priority, String tag, String content, Throwable tr) {
+        if (queueSize.incrementAndGet() > QUEUE_CAPACITY) {
+            queueSize.decrementAndGet();
+            dropCount.incrementAndGet();
+            return;
+        }
+        queue.offer(new Record(System.currentTimeMillis(), Process.myTid(), priority, tag, content, tr));
+        if (queueSize.get() >= BATCH_SIZE) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * 获取 丢弃的记录数
+     *
+     * @return long
+     */
+    public long getDropCount() {
+        return dropCount.get();
+    }
+
+    /**
+     * 同步写入队列中的记录
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            while (drain() > 0) {
+                // 直到队列为空
+            }
+        }
+    }
+
+    /**
+     * 安装崩溃处理(崩溃时同步写入队列中的记录，再交给原来的处理)
+     */
+    public void installCrashHandler() {
+        final Thread.UncaughtExceptionHandler defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable throwable) {
+                try {
+                    queue.offer(new Record(System.currentTimeMillis(), Process.myTid(), Log.ASSERT, "Crash", "Thread: " + thread.getName(), throwable));
+                    queueSize.incrementAndGet();
+                    flush();
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                }
+                if (defaultHandler != null) {
+                    defaultHandler.uncaughtException(thread, throwable);
+                }
+            }
+        });
+    }
+
+    private void loop() {
+        while (true) {
+            int count;
+            synchronized (writeLock) {
+                count = drain();
+            }
+            if (count == 0) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+    }
+
+    /**
+     * 取出一批记录写入文件(需持有 writeLock)
+     *
+     * @return int 写入的记录数
+     */
+    private int drain() {
+        int count = 0;
+        try {
+            Record record;
+            while (count < BATCH_SIZE && (record = queue.poll()) != null) {
+                queueSize.decrementAndGet();
+                count++;
+                write(record);
+            }
+            if (count > 0 && writer != null) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeWriter();
+        }
+        return count;
+    }
+
+    private void write(Record record) throws IOException {
+        if (writer == null) {
+            openWriter();
+        }
+
+        StringBuilder builder = lineBuilder;
+        builder.setLength(0);
+        builder.append(dateFormat.format(new Date(record.time)))
+                .append(' ').append(record.tid)
+                .append(' ').append(record.priority < PRIORITY_CHARS.length ? PRIORITY_CHARS[record.priority] : '?')
+                .append('/').append(record.tag)
+                .append(": ").append(record.content);
+        if (record.tr != null) {
+            builder.append('\n').append(Log.getStackTraceString(record.tr));
+        }
+        builder.append('\n');
+        writer.append(builder);
+        fileSize += getUtf8Length(builder);// 按编码后的字节数计算，与文件大小一致
+
+        if (fileSize >= maxFileSize) {
+            rotate();
+        }
+    }
+
+    /**
+     * 获取 UTF-8编码后的字节数(不分配内存)
+     *
+     * @param text text
+     * @return long
+     */
+    private static long getUtf8Length(CharSequence text) {
+        long length = 0;
+        for (int i = 0, size = text.length(); i < size; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (!Character.isSurrogate(c)) {
+                length += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 1;// 单独的代理字符编码为替换字符'?'
+            }
+        }
+        return length;
+    }
+
+    private void openWriter() throws IOException {
+        openWriter(true);
+    }
+
+    /**
+     * 打开当前文件
+     *
+     * @param append 是否追加(false时清空当前文件)
+     * @throws IOException IOException
+     */
+    private void openWriter(boolean append) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("mkdirs failed: " + dir);
+        }
+        File file = new File(dir, FILE_NAME);
+        fileSize = append ? file.length() : 0;
+        writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file, append)), UTF_8);
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * 滚动文件，旧文件在后台压缩
+     * <p>
+     * 重命名失败时清空当前文件，避免文件无限增长，以及之后每次写入都尝试滚动
+     *
+     * @throws IOException IOException
+     */
+    private void rotate() throws IOException {
+        closeWriter();
+        long time = System.currentTimeMillis();
+        File file;
+        while ((file = new File(dir, FILE_PREFIX + time + ".txt")).exists()
+                || new File(file.getPath() + GZIP_SUFFIX).exists()) {
+            time++;// 同一毫秒内多次滚动
+        }
+        final File rotateFile = file;
+        if (!new File(dir, FILE_NAME).renameTo(rotateFile)) {
+            Log.println(Log.WARN, "LogFileSink", "rename failed, truncate: " + rotateFile);
+            openWriter(false);
+            return;
+        }
+        compressExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                compress(rotateFile);
+                prune();
+            }
+        });
+    }
+
+    private void compress(File file) {
+        File gzipFile = new File(file.getPath() + GZIP_SUFFIX);
+        try (InputStream inputStream = new FileInputStream(file);
+             OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(gzipFile))) {
+            StreamCopier.copyBuffered(inputStream, outputStream);
+        } catch (IOException e) {
+            e.printStackTrace();
+            gzipFile.delete();
+            return;
+        }
+        file.delete();
+    }
+
+    /**
+     * 删除最旧的文件，最多保留 maxFileCount 个(包括当前文件)
+     */
+    private void prune() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        int index = 0;
+        File[] segments = new File[files.length];
+        for (File file : files) {
+            if (file.getName().startsWith(FILE_PREFIX)) {
+                segments[index++] = file;
+            }
+        }
+        segments = Arrays.copyOf(segments, index);
+        Arrays.sort(segments);// 文件名包含时间戳，按名称排序即按时间排序
+        for (int i = 0; i < segments.length - (maxFileCount - 1); i++) {
+            segments[i].delete();
+        }
+    }
+
+    private static final class Record {
+        final long time;
+        final int tid;
+        final int priority;
+        final String tag;
+        final String content;
+        final Throwable tr;
+
+        Record(long time, int tid, int priority, String tag, String content, Throwable tr) {
+            this.time = time;
+            this.tid = tid;
+            this.priority = priority;
+            this.tag = tag;
+            this.content = content;
+            this.tr = tr;
+        }
+    }
+
+}
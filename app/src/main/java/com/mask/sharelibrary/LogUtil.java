@@ -3,12 +3,25 @@ package com.mask.sharelibrary;
 import android.text.TextUtils;
 import android.util.Log;
 
+import java.util.Arrays;
+import java.util.IllegalFormatException;
 import java.util.Locale;
 
 /**
  * Log工具，类似android.util.Log。
- * tag自动产生，格式: customTagPrefix:className.methodName(L:lineNumber),
+ * TAG_MODE_CALLER 时tag自动产生，格式: customTagPrefix:className.methodName(L:lineNumber),
  * customTagPrefix为空时只输出：className.methodName(L:lineNumber)。
+ * <p>
+ * tag模式：
+ * TAG_MODE_CALLER(默认)：根据调用位置生成tag，每次输出都要获取完整调用栈(new Throwable())，开销较大；
+ * TAG_MODE_PREFIX：只输出customTagPrefix，不获取调用栈，频繁输出Log时可以切换为该模式；
+ * 也可以通过 getLogger(Class) 获取类级别的Logger，tag固定为类名，不获取调用栈。
+ * <p>
+ * 级别未开启时直接返回，不生成tag；内容开销较大时使用 format/Supplier 重载，
+ * 或先调用 isLoggable 判断(需要零分配时)。
+ * <p>
+ * 所有Log(包括级别未开启的，此时tag为customTagPrefix)都会按 FlightRecorder 自己的最低级别记录，崩溃时可导出最近的Log；
+ * 级别未开启时，format/Supplier 重载只在 FlightRecorder 记录该级别时才格式化/调用 Supplier。
  * Author: wyouflf
  * Date: 13-7-24
  * Time: 下午12:23
@@ -19,116 +32,547 @@ public class LogUtil {
 
     private static final boolean isDebug = BuildConfig.DEBUG;
 
+    public static final int TAG_MODE_CALLER = 0;
+    public static final int TAG_MODE_PREFIX = 1;
+
+    private static volatile int tagMode = TAG_MODE_CALLER;
+
+    private static volatile boolean logcatEnabled = true;
+
+    private static volatile LogFileSink fileSink;
+
+    /**
+     * 最低输出级别(Release包默认不输出)
+     */
+    private static volatile int minPriority = isDebug ? Log.VERBOSE : Integer.MAX_VALUE;
+
     private LogUtil() {
     }
 
+    /**
+     * 延迟生成Log内容，级别未开启时不会调用
+     */
+    public interface Supplier {
+        String get();
+    }
+
+    /**
+     * 设置 最低输出级别
+     *
+     * @param priority Log.VERBOSE/Log.DEBUG/Log.INFO/Log.WARN/Log.ERROR/Log.ASSERT，Integer.MAX_VALUE为全部关闭
+     */
+    public static void setMinPriority(int priority) {
+        minPriority = priority;
+    }
+
+    /**
+     * 是否输出该级别
+     * <p>
+     * 生成Log内容开销较大(例如需要查询)时，可以先判断再生成
+     *
+     * @param priority priority
+     * @return boolean
+     */
+    public static boolean isLoggable(int priority) {
+        return priority >= minPriority;
+    }
+
+    /**
+     * 是否输出该级别，不输出时只记录到 FlightRecorder(不生成调用位置tag)
+     *
+     * @param priority priority
+     * @param tag      tag
+     * @param content  content(可为null)
+     * @param tr       tr(可为null)
+     * @return boolean
+     */
+    private static boolean checkLoggable(int priority, String tag, String content, Throwable tr) {
+        if (isLoggable(priority)) {
+            return true;
+        }
+        FlightRecorder.record(priority, tag, content, tr);
+        return false;
+    }
+
+    /**
+     * 是否输出该级别，不输出时格式化后记录到 FlightRecorder(FlightRecorder 不记录该级别时不格式化)
+     *
+     * @param priority priority
+     * @param format   format
+     * @param arg      arg
+     * @return boolean
+     */
+    private static boolean checkFormatLoggable(int priority, String format, Object arg) {
+        if (isLoggable(priority)) {
+            return true;
+        }
+        if (FlightRecorder.isLoggable(priority)) {
+            FlightRecorder.record(priority, customTagPrefix, format(format, arg));
+        }
+        return false;
+    }
+
+    private static boolean checkFormatLoggable(int priority, String format, Object arg1, Object arg2) {
+        if (isLoggable(priority)) {
+            return true;
+        }
+        if (FlightRecorder.isLoggable(priority)) {
+            FlightRecorder.record(priority, customTagPrefix, format(format, arg1, arg2));
+        }
+        return false;
+    }
+
+    private static boolean checkFormatLoggable(int priority, String format, Object[] args) {
+        if (isLoggable(priority)) {
+            return true;
+        }
+        if (FlightRecorder.isLoggable(priority)) {
+            FlightRecorder.record(priority, customTagPrefix, format(format, args));
+        }
+        return false;
+    }
+
+    /**
+     * 是否输出该级别，不输出时调用 supplier 后记录到 FlightRecorder(FlightRecorder 不记录该级别时不调用)
+     *
+     * @param priority priority
+     * @param supplier supplier
+     * @return boolean
+     */
+    private static boolean checkSupplierLoggable(int priority, Supplier supplier) {
+        if (isLoggable(priority)) {
+            return true;
+        }
+        if (FlightRecorder.isLoggable(priority)) {
+            FlightRecorder.record(priority, customTagPrefix, supplier.get());
+        }
+        return false;
+    }
+
+    /**
+     * 设置 是否输出到Logcat
+     *
+     * @param enabled enabled
+     */
+    public static void setLogcatEnabled(boolean enabled) {
+        logcatEnabled = enabled;
+    }
+
+    /**
+     * 设置 Log文件输出(为null时不输出到文件)
+     *
+     * @param sink sink
+     */
+    public static void setFileSink(LogFileSink sink) {
+        fileSink = sink;
+    }
+
+    public static LogFileSink getFileSink() {
+        return fileSink;
+    }
+
+    /**
+     * 设置 tag模式
+     * <p>
+     * TAG_MODE_CALLER 每次输出都会获取调用栈，不要在频繁输出Log的场景开启
+     *
+     * @param mode TAG_MODE_CALLER/TAG_MODE_PREFIX
+     */
+    public static void setTagMode(int mode) {
+        tagMode = mode;
+    }
+
+    /**
+     * 获取 类级别的Logger(tag固定为类名，不获取调用栈)
+     *
+     * @param clazz clazz
+     * @return Logger
+     */
+    public static Logger getLogger(Class<?> clazz) {
+        return new Logger(buildTag(clazz.getSimpleName(), null, -1));
+    }
+
+    /**
+     * 生成tag(只能在 d/e/i/v/w/wtf 中直接调用，调用栈深度固定为2)
+     *
+     * @return String tag
+     */
     private static String generateTag() {
+        if (tagMode == TAG_MODE_PREFIX) {
+            return TextUtils.isEmpty(customTagPrefix) ? "" : customTagPrefix;
+        }
+
         StackTraceElement caller = new Throwable().getStackTrace()[2];
-        String tag = "%s.%s(L:%d)";
         String callerClazzName = caller.getClassName();
         callerClazzName = callerClazzName.substring(callerClazzName.lastIndexOf(".") + 1);
-        tag = String.format(Locale.getDefault(), tag, callerClazzName, caller.getMethodName(), caller.getLineNumber());
-        tag = TextUtils.isEmpty(customTagPrefix) ? tag : customTagPrefix + ":" + tag;
-        return tag;
+        return buildTag(callerClazzName, caller.getMethodName(), caller.getLineNumber());
+    }
+
+    /**
+     * 拼接tag，格式: customTagPrefix:className.methodName(L:lineNumber)
+     *
+     * @param className  className
+     * @param methodName methodName(为null时只输出className)
+     * @param lineNumber lineNumber
+     * @return String tag
+     */
+    private static String buildTag(String className, String methodName, int lineNumber) {
+        StringBuilder builder = new StringBuilder(64);
+        if (!TextUtils.isEmpty(customTagPrefix)) {
+            builder.append(customTagPrefix).append(':');
+        }
+        builder.append(className);
+        if (methodName != null) {
+            builder.append('.').append(methodName).append("(L:").append(lineNumber).append(')');
+        }
+        return builder.toString();
     }
 
     public static void d(String content) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.DEBUG, customTagPrefix, content, null)) return;
         String tag = generateTag();
 
-        Log.d(tag, content);
+        print(Log.DEBUG, tag, content, null);
     }
 
     public static void d(String content, Throwable tr) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.DEBUG, customTagPrefix, content, tr)) return;
+        String tag = generateTag();
+
+        print(Log.DEBUG, tag, content, tr);
+    }
+
+    public static void d(String format, Object arg) {
+        if (!checkFormatLoggable(Log.DEBUG, format, arg)) return;
+        String tag = generateTag();
+
+        print(Log.DEBUG, tag, format(format, arg), null);
+    }
+
+    public static void d(String format, Object arg1, Object arg2) {
+        if (!checkFormatLoggable(Log.DEBUG, format, arg1, arg2)) return;
+        String tag = generateTag();
+
+        print(Log.DEBUG, tag, format(format, arg1, arg2), null);
+    }
+
+    public static void d(String format, Object... args) {
+        if (!checkFormatLoggable(Log.DEBUG, format, args)) return;
+        String tag = generateTag();
+
+        print(Log.DEBUG, tag, format(format, args), null);
+    }
+
+    public static void d(Supplier supplier) {
+        if (!checkSupplierLoggable(Log.DEBUG, supplier)) return;
         String tag = generateTag();
 
-        Log.d(tag, content, tr);
+        print(Log.DEBUG, tag, supplier.get(), null);
     }
 
     public static void e(String content) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.ERROR, customTagPrefix, content, null)) return;
         String tag = generateTag();
 
-        Log.e(tag, content);
+        print(Log.ERROR, tag, content, null);
     }
 
     public static void e(String content, Throwable tr) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.ERROR, customTagPrefix, content, tr)) return;
+        String tag = generateTag();
+
+        print(Log.ERROR, tag, content, tr);
+    }
+
+    public static void e(String format, Object arg) {
+        if (!checkFormatLoggable(Log.ERROR, format, arg)) return;
+        String tag = generateTag();
+
+        print(Log.ERROR, tag, format(format, arg), null);
+    }
+
+    public static void e(String format, Object arg1, Object arg2) {
+        if (!checkFormatLoggable(Log.ERROR, format, arg1, arg2)) return;
+        String tag = generateTag();
+
+        print(Log.ERROR, tag, format(format, arg1, arg2), null);
+    }
+
+    public static void e(String format, Object... args) {
+        if (!checkFormatLoggable(Log.ERROR, format, args)) return;
+        String tag = generateTag();
+
+        print(Log.ERROR, tag, format(format, args), null);
+    }
+
+    public static void e(Supplier supplier) {
+        if (!checkSupplierLoggable(Log.ERROR, supplier)) return;
         String tag = generateTag();
 
-        Log.e(tag, content, tr);
+        print(Log.ERROR, tag, supplier.get(), null);
     }
 
     public static void i(String content) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.INFO, customTagPrefix, content, null)) return;
         String tag = generateTag();
 
-        Log.i(tag, content);
+        print(Log.INFO, tag, content, null);
     }
 
     public static void i(String content, Throwable tr) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.INFO, customTagPrefix, content, tr)) return;
+        String tag = generateTag();
+
+        print(Log.INFO, tag, content, tr);
+    }
+
+    public static void i(String format, Object arg) {
+        if (!checkFormatLoggable(Log.INFO, format, arg)) return;
+        String tag = generateTag();
+
+        print(Log.INFO, tag, format(format, arg), null);
+    }
+
+    public static void i(String format, Object arg1, Object arg2) {
+        if (!checkFormatLoggable(Log.INFO, format, arg1, arg2)) return;
+        String tag = generateTag();
+
+        print(Log.INFO, tag, format(format, arg1, arg2), null);
+    }
+
+    public static void i(String format, Object... args) {
+        if (!checkFormatLoggable(Log.INFO, format, args)) return;
+        String tag = generateTag();
+
+        print(Log.INFO, tag, format(format, args), null);
+    }
+
+    public static void i(Supplier supplier) {
+        if (!checkSupplierLoggable(Log.INFO, supplier)) return;
         String tag = generateTag();
 
-        Log.i(tag, content, tr);
+        print(Log.INFO, tag, supplier.get(), null);
     }
 
     public static void v(String content) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.VERBOSE, customTagPrefix, content, null)) return;
         String tag = generateTag();
 
-        Log.v(tag, content);
+        print(Log.VERBOSE, tag, content, null);
     }
 
     public static void v(String content, Throwable tr) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.VERBOSE, customTagPrefix, content, tr)) return;
+        String tag = generateTag();
+
+        print(Log.VERBOSE, tag, content, tr);
+    }
+
+    public static void v(String format, Object arg) {
+        if (!checkFormatLoggable(Log.VERBOSE, format, arg)) return;
+        String tag = generateTag();
+
+        print(Log.VERBOSE, tag, format(format, arg), null);
+    }
+
+    public static void v(String format, Object arg1, Object arg2) {
+        if (!checkFormatLoggable(Log.VERBOSE, format, arg1, arg2)) return;
         String tag = generateTag();
 
-        Log.v(tag, content, tr);
+        print(Log.VERBOSE, tag, format(format, arg1, arg2), null);
+    }
+
+    public static void v(String format, Object... args) {
+        if (!checkFormatLoggable(Log.VERBOSE, format, args)) return;
+        String tag = generateTag();
+
+        print(Log.VERBOSE, tag, format(format, args), null);
+    }
+
+    public static void v(Supplier supplier) {
+        if (!checkSupplierLoggable(Log.VERBOSE, supplier)) return;
+        String tag = generateTag();
+
+        print(Log.VERBOSE, tag, supplier.get(), null);
     }
 
     public static void w(String content) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.WARN, customTagPrefix, content, null)) return;
         String tag = generateTag();
 
-        Log.w(tag, content);
+        print(Log.WARN, tag, content, null);
     }
 
     public static void w(String content, Throwable tr) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.WARN, customTagPrefix, content, tr)) return;
+        String tag = generateTag();
+
+        print(Log.WARN, tag, content, tr);
+    }
+
+    public static void w(String format, Object arg) {
+        if (!checkFormatLoggable(Log.WARN, format, arg)) return;
+        String tag = generateTag();
+
+        print(Log.WARN, tag, format(format, arg), null);
+    }
+
+    public static void w(String format, Object arg1, Object arg2) {
+        if (!checkFormatLoggable(Log.WARN, format, arg1, arg2)) return;
+        String tag = generateTag();
+
+        print(Log.WARN, tag, format(format, arg1, arg2), null);
+    }
+
+    public static void w(String format, Object... args) {
+        if (!checkFormatLoggable(Log.WARN, format, args)) return;
         String tag = generateTag();
 
-        Log.w(tag, content, tr);
+        print(Log.WARN, tag, format(format, args), null);
+    }
+
+    public static void w(Supplier supplier) {
+        if (!checkSupplierLoggable(Log.WARN, supplier)) return;
+        String tag = generateTag();
+
+        print(Log.WARN, tag, supplier.get(), null);
     }
 
     public static void w(Throwable tr) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.WARN, customTagPrefix, null, tr)) return;
         String tag = generateTag();
 
-        Log.w(tag, tr);
+        print(Log.WARN, tag, null, tr);
     }
 
 
     public static void wtf(String content) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.ASSERT, customTagPrefix, content, null)) return;
         String tag = generateTag();
 
-        Log.wtf(tag, content);
+        print(Log.ASSERT, tag, content, null);
     }
 
     public static void wtf(String content, Throwable tr) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.ASSERT, customTagPrefix, content, tr)) return;
         String tag = generateTag();
 
-        Log.wtf(tag, content, tr);
+        print(Log.ASSERT, tag, content, tr);
     }
 
     public static void wtf(Throwable tr) {
-        if (!isDebug) return;
+        if (!checkLoggable(Log.ASSERT, customTagPrefix, null, tr)) return;
         String tag = generateTag();
 
-        Log.wtf(tag, tr);
+        print(Log.ASSERT, tag, null, tr);
+    }
+
+    /**
+     * 格式化Log内容
+     *
+     * @param format format(String.format格式)
+     * @param args   args
+     * @return String
+     */
+    private static String format(String format, Object... args) {
+        try {
+            return String.format(Locale.US, format, args);
+        } catch (IllegalFormatException e) {
+            return format + " " + Arrays.toString(args);
+        }
+    }
+
+    /**
+     * 输出到Logcat和Log文件
+     *
+     * @param priority priority
+     * @param tag      tag
+     * @param content  content(可为null)
+     * @param tr       tr(可为null)
+     */
+    private static void print(int priority, String tag, String content, Throwable tr) {
+        if (logcatEnabled) {
+            if (priority == Log.ASSERT) {
+                if (content == null) {
+                    Log.wtf(tag, tr);
+                } else {
+                    Log.wtf(tag, content, tr);
+                }
+            } else if (tr == null) {
+                Log.println(priority, tag, content);
+            } else {
+                Log.println(priority, tag, (content == null ? "" : content + '\n') + Log.getStackTraceString(tr));
+            }
+        }
+
+        LogFileSink sink = fileSink;
+        if (sink != null) {
+            sink.offer(priority, tag, content, tr);
+        }
+
+        FlightRecorder.record(priority, tag, content, tr);
+    }
+
+    /**
+     * 类级别的Logger，tag固定，不获取调用栈
+     */
+    public static final class Logger {
+
+        private final String tag;
+
+        private Logger(String tag) {
+            this.tag = tag;
+        }
+
+        public void d(String content) {
+            if (!checkLoggable(Log.DEBUG, tag, content, null)) return;
+            print(Log.DEBUG, tag, content, null);
+        }
+
+        public void d(String content, Throwable tr) {
+            if (!checkLoggable(Log.DEBUG, tag, content, tr)) return;
+            print(Log.DEBUG, tag, content, tr);
+        }
+
+        public void e(String content) {
+            if (!checkLoggable(Log.ERROR, tag, content, null)) return;
+            print(Log.ERROR, tag, content, null);
+        }
+
+        public void e(String content, Throwable tr) {
+            if (!checkLoggable(Log.ERROR, tag, content, tr)) return;
+            print(Log.ERROR, tag, content, tr);
+        }
+
+        public void i(String content) {
+            if (!checkLoggable(Log.INFO, tag, content, null)) return;
+            print(Log.INFO, tag, content, null);
+        }
+
+        public void i(String content, Throwable tr) {
+            if (!checkLoggable(Log.INFO, tag, content, tr)) return;
+            print(Log.INFO, tag, content, tr);
+        }
+
+        public void v(String content) {
+            if (!checkLoggable(Log.VERBOSE, tag, content, null)) return;
+            print(Log.VERBOSE, tag, content, null);
+        }
+
+        public void v(String content, Throwable tr) {
+            if (!checkLoggable(Log.VERBOSE, tag, content, tr)) return;
+            print(Log.VERBOSE, tag, content, tr);
+        }
+
+        public void w(String content) {
+            if (!checkLoggable(Log.WARN, tag, content, null)) return;
+            print(Log.WARN, tag, content, null);
+        }
+
+        public void w(String content, Throwable tr) {
+            if (!checkLoggable(Log.WARN, tag, content, tr)) return;
+            print(Log.WARN, tag, content, tr);
+        }
     }
 
 }
@@ -3,15 +3,16 @@ package com.mask.sharelibrary;
 import android.Manifest;
 import android.app.Activity;
 import android.content.ClipData;
-import android.content.ContentUris;
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
+import android.os.SystemClock;
 import android.provider.MediaStore;
+import android.util.Log;
 import android.view.View;
 
 import androidx.annotation.Nullable;
@@ -21,6 +22,9 @@ import androidx.core.content.ContextCompat;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 官方文档：
@@ -32,11 +36,26 @@ import java.util.ArrayList;
  */
 public class MainActivity extends AppCompatActivity {
 
+    private static final int REQUEST_CODE_DELETE = 10087;
+
+    private static final String ZIP_NAME_PREFIX = "share_";
+
+    /**
+     * 是否已打印 MediaStore(只在主线程访问)
+     */
+    private static boolean mediaStorePrinted;
+
+    /**
+     * 是否已开始执行导出任务队列(只在主线程访问)
+     */
+    private static boolean exportQueueStarted;
+
     private Activity activity;
 
     private View btn_open_document;
     private View btn_share_single;
     private View btn_share_multiple;
+    private View btn_share_zip;
     private View btn_delete;
 
     private File dirFile;
@@ -56,6 +75,7 @@ public class MainActivity extends AppCompatActivity {
         btn_open_document = findViewById(R.id.btn_open_document);
         btn_share_single = findViewById(R.id.btn_share_single);
         btn_share_multiple = findViewById(R.id.btn_share_multiple);
+        btn_share_zip = findViewById(R.id.btn_share_zip);
         btn_delete = findViewById(R.id.btn_delete);
     }
 
@@ -78,6 +98,25 @@ public class MainActivity extends AppCompatActivity {
                 shareMultiple();
             }
         });
+        btn_share_multiple.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                // 长按 开启/关闭 耗时追踪
+                boolean enabled = !TraceRecorder.isEnabled();
+                if (enabled) {
+                    TraceRecorder.clear();
+                }
+                TraceRecorder.setEnabled(enabled);
+                LogUtil.i("TraceRecorder enabled: " + enabled);
+                return true;
+            }
+        });
+        btn_share_zip.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                shareZip();
+            }
+        });
         btn_delete.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -87,6 +126,26 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void initData() {
+        // 崩溃时导出最近的Log(Release包也记录)
+        FlightRecorder.installCrashHandler(new File(getFilesDir(), "flight_recorder.txt"));
+
+        // Debug包输出Log文件，方便排查问题
+        if (BuildConfig.DEBUG && LogUtil.getFileSink() == null) {
+            LogFileSink logFileSink = new LogFileSink(new File(getFilesDir(), "log"), 1024 * 1024, 5);
+            logFileSink.installCrashHandler();
+            LogUtil.setFileSink(logFileSink);
+        }
+
+        // Debug包定时输出 FileUtils 操作统计
+        if (BuildConfig.DEBUG && !FileOpsMetrics.isEnabled()) {
+            FileOpsMetrics.setListener(new FileOpsMetrics.Listener() {
+                @Override
+                public void onSnapshot(FileOpsMetrics.Snapshot snapshot) {
+                    LogUtil.i(snapshot.toString());
+                }
+            }, 60 * 1000);
+        }
+
         dirFile = getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS);
 
         if (dirFile != null && dirFile.isDirectory()) {
@@ -99,7 +158,24 @@ public class MainActivity extends AppCompatActivity {
 
         requestPermission();
 
-        printMediaStore();
+        // 清理中断的导出，继续上次未完成的导出任务(每个进程只执行一次，Activity重建时不重复执行)
+        if (!exportQueueStarted) {
+            exportQueueStarted = true;
+            final Context appContext = getApplicationContext();
+            IoExecutors.io().execute(new Runnable() {
+                @Override
+                public void run() {
+                    ResumableExporter.sweep(appContext);
+                    ExportJobQueue.getInstance(appContext).start();
+                }
+            });
+        }
+
+        // Debug包每个进程只同步一次 MediaStore 索引(Activity重建时不重复同步)
+        if (BuildConfig.DEBUG && !mediaStorePrinted) {
+            mediaStorePrinted = true;
+            printMediaStore();
+        }
     }
 
     /**
@@ -116,29 +192,18 @@ public class MainActivity extends AppCompatActivity {
      * 打印 MediaStore
      */
     private void printMediaStore() {
-        if (true) {
-            return;
-        }
-        Uri contentUri = MediaStore.Files.getContentUri("external");
-//        String[] projection = new String[]{MediaStore.MediaColumns._ID};
-//        String selection = MediaStore.MediaColumns.DATA + "=? ";
-//        String[] selectionArgs = new String[]{path};
-        Cursor cursor = getContentResolver().query(contentUri, null, null, null, null);
-        if (cursor != null) {
-            if (cursor.moveToFirst()) {
-                do {
-                    Uri uri = ContentUris.withAppendedId(contentUri, cursor.getLong(cursor.getColumnIndex(MediaStore.MediaColumns._ID)));
-                    String name = cursor.getString(cursor.getColumnIndex(MediaStore.MediaColumns.DISPLAY_NAME));
-                    String path = cursor.getString(cursor.getColumnIndex(MediaStore.MediaColumns.DATA));
-                    String mimeType = cursor.getString(cursor.getColumnIndex(MediaStore.MediaColumns.MIME_TYPE));
-                    LogUtil.i("Uri: " + uri);
-                    LogUtil.i("Name: " + name);
-                    LogUtil.i("Path: " + path);
-                    LogUtil.i("MimeType: " + mimeType);
-                } while (cursor.moveToNext());
+        IoExecutors.io().execute(new Runnable() {
+            @Override
+            public void run() {
+                MediaStoreIndex mediaStoreIndex = MediaStoreIndex.getInstance(activity);
+                long startTime = SystemClock.elapsedRealtime();
+                int count = mediaStoreIndex.sync();
+                if (LogUtil.isLoggable(Log.INFO)) {
+                    LogUtil.i("MediaStoreIndex sync: " + count + " changed, " + mediaStoreIndex.getCount() + " total, " + (SystemClock.elapsedRealtime() - startTime) + "ms");
+                    LogUtil.i("MediaStoreIndex images: " + mediaStoreIndex.getUris("image/*").size());
+                }
             }
-            cursor.close();
-        }
+        });
     }
 
     /**
@@ -155,30 +220,33 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_CODE_DELETE) {
+            LogUtil.i("onActivityResult Delete: " + (resultCode == RESULT_OK));
+        }
         if (requestCode == 10086 && resultCode == RESULT_OK && data != null) {
             Uri uri = data.getData();
             if (uri != null) {// 单选
-                String mimeType = FileUtils.getMimeType(activity, uri);
-                LogUtil.i("onActivityResult Single Uri: " + uri);
-                LogUtil.i("onActivityResult Single Path: " + FileUtils.getPath(activity, uri));
-                LogUtil.i("onActivityResult Single Name: " + FileUtils.getName(activity, uri));
-                LogUtil.i("onActivityResult Single MimeType: " + mimeType);
+                UriMetadata metadata = UriMetadata.resolve(activity, uri);
+                if (LogUtil.isLoggable(Log.INFO)) {
+                    LogUtil.i("onActivityResult Single Uri: " + uri);
+                    LogUtil.i("onActivityResult Single Path: " + metadata.getPath());
+                    LogUtil.i("onActivityResult Single Name: " + metadata.getName());
+                    LogUtil.i("onActivityResult Single MimeType: " + metadata.getMimeType());
+                }
 
-                shareSingle(uri, mimeType);
+                shareSingle(uri, metadata.getMimeType());
 
 //            boolean delete = FileUtils.deleteSystem(activity, uri);
 //            LogUtil.i("delete: " + delete);
             }
 
             ClipData clipData = data.getClipData();
-            if (clipData != null) {// 多选
-                for (int i = 0; i < clipData.getItemCount(); i++) {
-                    Uri uriItem = clipData.getItemAt(i).getUri();
-
-                    LogUtil.i("onActivityResult Multiple Uri: " + uriItem);
-                    LogUtil.i("onActivityResult Multiple Path: " + FileUtils.getPath(activity, uriItem));
-                    LogUtil.i("onActivityResult Multiple Name: " + FileUtils.getName(activity, uriItem));
-                    LogUtil.i("onActivityResult Multiple MimeType: " + FileUtils.getMimeType(activity, uriItem));
+            if (clipData != null && LogUtil.isLoggable(Log.INFO)) {// 多选(只是打印Log，Log未开启时不查询)
+                for (UriMetadata metadataItem : UriMetadata.resolve(activity, clipData)) {
+                    LogUtil.i("onActivityResult Multiple Uri: " + metadataItem.getUri());
+                    LogUtil.i("onActivityResult Multiple Path: " + metadataItem.getPath());
+                    LogUtil.i("onActivityResult Multiple Name: " + metadataItem.getName());
+                    LogUtil.i("onActivityResult Multiple MimeType: " + metadataItem.getMimeType());
                 }
             }
         }
@@ -228,82 +296,131 @@ public class MainActivity extends AppCompatActivity {
 //            }
 //        });
 
-        Uri uri;
-
         final Uri fileUri = FileUtils.getFileUri(activity, file);
         final Uri contentUri = FileUtils.getContentUri(activity, file);
-        final String mimeType = FileUtils.getMimeType(file.getName());
-
-        LogUtil.i("File Path: " + file.getAbsolutePath());
-        LogUtil.i("File Exists: " + file.exists());
-        LogUtil.i("File Extension: " + FileUtils.getExtension(file.getName()));
-        LogUtil.i("File MimeType: " + mimeType);
-        LogUtil.i("File FileUri: " + fileUri);
-        LogUtil.i("File FilePath: " + FileUtils.getPath(activity, fileUri));
-        LogUtil.i("File FileName: " + FileUtils.getName(activity, fileUri));
-        LogUtil.i("File FileMimeType: " + FileUtils.getMimeType(activity, fileUri));
-        LogUtil.i("File ContentUri: " + contentUri);
-        LogUtil.i("File ContentPath: " + FileUtils.getPath(activity, contentUri));
-        LogUtil.i("File ContentName: " + FileUtils.getName(activity, contentUri));
-        LogUtil.i("File ContentMimeType: " + FileUtils.getMimeType(activity, contentUri));
+        final String mimeType = FileUtils.getMimeType(file);
+
+        if (LogUtil.isLoggable(Log.INFO)) {// Log未开启时不查询
+            LogUtil.i("File Path: " + file.getAbsolutePath());
+            LogUtil.i("File Exists: " + file.exists());
+            LogUtil.i("File Extension: " + FileUtils.getExtension(file.getName()));
+            LogUtil.i("File MimeType: " + mimeType);
+            LogUtil.i("File FileUri: " + fileUri);
+            LogUtil.i("File FilePath: " + FileUtils.getPath(activity, fileUri));
+            LogUtil.i("File FileName: " + FileUtils.getName(activity, fileUri));
+            LogUtil.i("File FileMimeType: " + FileUtils.getMimeType(activity, fileUri));
+            LogUtil.i("File ContentUri: " + contentUri);
+            LogUtil.i("File ContentPath: " + FileUtils.getPath(activity, contentUri));
+            LogUtil.i("File ContentName: " + FileUtils.getName(activity, contentUri));
+            LogUtil.i("File ContentMimeType: " + FileUtils.getMimeType(activity, contentUri));
+        }
+
+        // App私有目录内的文件直接分享，不需要复制
+        final Uri streamUri = contentUri == null ? FileUtils.getStreamUri(activity, file) : null;
+        LogUtil.i("File StreamUri: " + streamUri);
+        if (streamUri != null) {
+            shareSingle(streamUri, mimeType);
+            return;
+        }
 
         if (contentUri == null) {
-            final Uri copyUri = FileUtils.copyFileToExternal(activity, dirName, file);
-            LogUtil.i("File CopyUri: " + copyUri);
-            LogUtil.i("File CopyPath: " + FileUtils.getPath(activity, copyUri));
-            LogUtil.i("File CopyName: " + FileUtils.getName(activity, copyUri));
-            LogUtil.i("File CopyMimeType: " + FileUtils.getMimeType(activity, copyUri));
-
-            uri = copyUri == null ? fileUri : copyUri;
-        } else {
-            uri = contentUri;
+            // 复制文件比较耗时，在IO线程执行
+            FileUtils.copyFileToExternalAsync(activity, dirName, file, ContextCompat.getMainExecutor(activity), new FileUtils.ExportCallback() {
+                @Override
+                public void onProgress(long bytes, long total) {
+                    LogUtil.i("File CopyProgress: %d/%d", bytes, total);
+                }
+
+                @Override
+                public void onComplete(Uri copyUri) {
+                    LogUtil.i("File CopyUri: " + copyUri);
+                    LogUtil.i("File CopyPath: " + FileUtils.getPath(activity, copyUri));
+                    LogUtil.i("File CopyName: " + FileUtils.getName(activity, copyUri));
+                    LogUtil.i("File CopyMimeType: " + FileUtils.getMimeType(activity, copyUri));
+
+                    shareSingle(copyUri == null ? fileUri : copyUri, mimeType);
+                }
+
+                @Override
+                public void onCancel() {
+                    LogUtil.i("File CopyCancel");
+                }
+            });
+            return;
         }
 
-        shareSingle(uri, mimeType);
+        shareSingle(contentUri, mimeType);
     }
 
     /**
      * 分享多个文件
      */
     private void shareMultiple() {
-        File dirFileTemp;
-        String[] pathArr = new String[]{
-                "Screenshot_2020-01-03-16-54-05-360_com.mask.chartlibrary.jpg",
-                "Screenshot_2020-01-03-16-55-03-336_com.mask.chartlibrary.jpg",
-                "Screenshot_2020-02-18-16-08-37-324_com.raykite.mobile.jpg",
-                "Screenshot_2020-02-18-16-09-30-530_com.raykite.mobile.jpg",
-                "Screenshot_2020-02-18-16-10-07-667_com.raykite.mobile.jpg",
-        };
-        // 应用外图片测试
-//        dirFileTemp = new File("/storage/emulated/0/DCIM/Screenshots/");
-        // 应用内图片测试
-        dirFileTemp = dirFile;
-        pathArr[0] = "20200720190708.png";
+        final List<File> fileList = getMultipleFileList();
 
-        ArrayList<Uri> uriList = new ArrayList<>();
-        for (String path : pathArr) {
-            File file = new File(dirFileTemp, path);
-            final Uri fileUri = FileUtils.getFileUri(activity, file);
-            final Uri contentUri = FileUtils.getContentUri(activity, file);
-
-            LogUtil.i("Multiple Path: " + file.getAbsolutePath());
-            LogUtil.i("Multiple Exists: " + file.exists());
-            LogUtil.i("Multiple FileUri: " + fileUri);
-            LogUtil.i("Multiple ContentUri: " + contentUri);
-
-            Uri uri;
-            if (contentUri == null) {
-                final Uri copyUri = FileUtils.copyFileToExternal(activity, dirName, file);
-                LogUtil.i("Multiple CopyUri: " + copyUri);
-
-                uri = copyUri == null ? fileUri : copyUri;
-            } else {
-                uri = contentUri;
-            }
-            uriList.add(uri);
-        }
+        // 查询和复制文件比较耗时，在IO线程执行
+        IoExecutors.io().execute(new Runnable() {
+            @Override
+            public void run() {
+                final ArrayList<Uri> uriList = new ArrayList<>();
+                TraceRecorder.beginSection("shareMultiple");
+                try {
+                    Map<String, Uri> contentUriMap = FileUtils.getContentUris(activity, fileList);
+
+                    // 查询不到ContentUri的文件批量复制到外部
+                    List<File> copyFileList = new ArrayList<>();
+                    for (File file : fileList) {
+                        if (!contentUriMap.containsKey(file.getAbsolutePath())) {
+                            copyFileList.add(file);
+                        }
+                    }
+                    Map<File, Uri> copyUriMap = new HashMap<>();
+                    for (ExportResult result : FileUtils.copyFilesToExternal(activity, dirName, copyFileList)) {
+                        LogUtil.i("Multiple CopyResult: " + result);
+                        copyUriMap.put(result.getFile(), result.getUri());
+                    }
+
+                    for (File file : fileList) {
+                        final Uri fileUri = FileUtils.getFileUri(activity, file);
+                        final Uri contentUri = contentUriMap.get(file.getAbsolutePath());
+                        final Uri copyUri = copyUriMap.get(file);
+
+                        LogUtil.i("Multiple Path: " + file.getAbsolutePath());
+                        LogUtil.i("Multiple Exists: " + file.exists());
+                        LogUtil.i("Multiple FileUri: " + fileUri);
+                        LogUtil.i("Multiple ContentUri: " + contentUri);
+                        LogUtil.i("Multiple CopyUri: " + copyUri);
+
+                        Uri uri;
+                        if (contentUri == null) {
+                            uri = copyUri == null ? fileUri : copyUri;
+                        } else {
+                            uri = contentUri;
+                        }
+                        uriList.add(uri);
+                    }
+                    LogUtil.i("Multiple Cache: " + MediaStoreCache.getInstance(activity));
+                } finally {
+                    TraceRecorder.endSection();
+                }
 
-        shareMultiple(uriList, "image/*");
+                // 输出耗时追踪，用 Perfetto 或 chrome://tracing 打开
+                if (TraceRecorder.isEnabled()) {
+                    File traceFile = new File(getExternalFilesDir(null), "trace/share_multiple.json");
+                    if (TraceRecorder.write(traceFile)) {
+                        LogUtil.i("Multiple Trace: " + traceFile);
+                    }
+                    TraceRecorder.clear();// 每次分享输出一个文件，清空后下次不会因为缓冲区已满而丢弃事件
+                }
+
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        shareMultiple(uriList, "image/*");
+                    }
+                });
+            }
+        });
     }
 
     /**
@@ -328,26 +445,120 @@ public class MainActivity extends AppCompatActivity {
 
         final Uri fileUri = FileUtils.getFileUri(activity, file);
         final Uri contentUri = FileUtils.getContentUri(activity, file);
-        final String mimeType = FileUtils.getMimeType(file.getName());
-
-        LogUtil.i("File Path: " + file.getAbsolutePath());
-        LogUtil.i("File Exists: " + file.exists());
-        LogUtil.i("File Extension: " + FileUtils.getExtension(file.getName()));
-        LogUtil.i("File MimeType: " + mimeType);
-        LogUtil.i("File FileUri: " + fileUri);
-        LogUtil.i("File FilePath: " + FileUtils.getPath(activity, fileUri));
-        LogUtil.i("File FileName: " + FileUtils.getName(activity, fileUri));
-        LogUtil.i("File FileMimeType: " + FileUtils.getMimeType(activity, fileUri));
-        LogUtil.i("File ContentUri: " + contentUri);
-        LogUtil.i("File ContentPath: " + FileUtils.getPath(activity, contentUri));
-        LogUtil.i("File ContentName: " + FileUtils.getName(activity, contentUri));
-        LogUtil.i("File ContentMimeType: " + FileUtils.getMimeType(activity, contentUri));
+        final String mimeType = FileUtils.getMimeType(file);
+
+        if (LogUtil.isLoggable(Log.INFO)) {// Log未开启时不查询
+            LogUtil.i("File Path: " + file.getAbsolutePath());
+            LogUtil.i("File Exists: " + file.exists());
+            LogUtil.i("File Extension: " + FileUtils.getExtension(file.getName()));
+            LogUtil.i("File MimeType: " + mimeType);
+            LogUtil.i("File FileUri: " + fileUri);
+            LogUtil.i("File FilePath: " + FileUtils.getPath(activity, fileUri));
+            LogUtil.i("File FileName: " + FileUtils.getName(activity, fileUri));
+            LogUtil.i("File FileMimeType: " + FileUtils.getMimeType(activity, fileUri));
+            LogUtil.i("File ContentUri: " + contentUri);
+            LogUtil.i("File ContentPath: " + FileUtils.getPath(activity, contentUri));
+            LogUtil.i("File ContentName: " + FileUtils.getName(activity, contentUri));
+            LogUtil.i("File ContentMimeType: " + FileUtils.getMimeType(activity, contentUri));
+        }
 
         uri = contentUri == null ? fileUri : contentUri;
 
-        boolean delete = FileUtils.delete(activity, uri);
-        delete = file.delete() || delete;
-        LogUtil.i("delete: " + delete);
+        final List<Uri> uriList = new ArrayList<>();
+        uriList.add(uri);
+        final File deleteFile = file;
+
+        // 批量删除比较耗时，在IO线程执行
+        IoExecutors.io().execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<DeleteResult> resultList = FileUtils.delete(activity, uriList);
+                boolean delete = false;
+                for (DeleteResult result : resultList) {
+                    LogUtil.i("delete Result: " + result);
+                    delete = result.isDeleted() || delete;
+                }
+                delete = deleteFile.delete() || delete;
+                LogUtil.i("delete: " + delete);
+
+                // 其他App的文件，一次请求用户授权全部删除
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        FileUtils.requestDelete(activity, resultList, REQUEST_CODE_DELETE);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 获取 分享多个文件的测试文件
+     *
+     * @return List<File>
+     */
+    private List<File> getMultipleFileList() {
+        File dirFileTemp;
+        String[] pathArr = new String[]{
+                "Screenshot_2020-01-03-16-54-05-360_com.mask.chartlibrary.jpg",
+                "Screenshot_2020-01-03-16-55-03-336_com.mask.chartlibrary.jpg",
+                "Screenshot_2020-02-18-16-08-37-324_com.raykite.mobile.jpg",
+                "Screenshot_2020-02-18-16-09-30-530_com.raykite.mobile.jpg",
+                "Screenshot_2020-02-18-16-10-07-667_com.raykite.mobile.jpg",
+        };
+        // 应用外图片测试
+//        dirFileTemp = new File("/storage/emulated/0/DCIM/Screenshots/");
+        // 应用内图片测试
+        dirFileTemp = dirFile;
+        pathArr[0] = "20200720190708.png";
+
+        List<File> fileList = new ArrayList<>();
+        for (String path : pathArr) {
+            fileList.add(new File(dirFileTemp, path));
+        }
+        return fileList;
+    }
+
+    /**
+     * 打包分享多个文件(只分享一个ZIP的Uri)
+     */
+    private void shareZip() {
+        final List<File> fileList = getMultipleFileList();
+
+        // 打包比较耗时，在IO线程执行
+        IoExecutors.io().execute(new Runnable() {
+            @Override
+            public void run() {
+                // 每次分享都会生成新的ZIP，先删除过期的
+                int cleanCount = ZipPackager.cleanExpired(activity, dirName, ZIP_NAME_PREFIX);
+                LogUtil.i("Zip Clean: " + cleanCount);
+
+                String zipName = ZIP_NAME_PREFIX + System.currentTimeMillis() + ".zip";
+                StreamCopier.ProgressListener listener = new StreamCopier.ProgressListener() {
+                    @Override
+                    public void onProgress(long bytes) {
+                        LogUtil.v("Zip Progress: %d", bytes);
+                    }
+                };
+                Uri zipUri = ZipPackager.packageToExternal(activity, dirName, zipName, fileList, null, listener);
+                if (zipUri == null) {
+                    // MediaStore失败则打包到cache目录
+                    zipUri = ZipPackager.packageToCache(activity, zipName, fileList, null, listener);
+                }
+                LogUtil.i("Zip Uri: " + zipUri);
+                if (zipUri == null) {
+                    return;
+                }
+
+                final Uri uri = zipUri;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        shareSingle(uri, ZipPackager.MIME_TYPE_ZIP);
+                    }
+                });
+            }
+        });
     }
 
     /**
@@ -0,0 +1,181 @@
+package com.mask.sharelibrary;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.util.LruCache;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MediaStore 查询结果缓存
+ * <p>
+ * 缓存 path -> Uri、name+size -> Uri、Uri -> path 的查询结果(包括查询不到的结果)，
+ * 注册 ContentObserver 监听 Images/Video/Audio/Files 集合，有变化时清空缓存。
+ * LruCache 本身是线程安全的。
+ */
+public class MediaStoreCache {
+
+    /**
+     * 每个缓存的最大条目数
+     */
+    private static final int MAX_SIZE = 512;
+
+    /**
+     * 查询不到的结果(LruCache 不支持 null)
+     */
+    public static final Uri NONE_URI = Uri.EMPTY;
+    public static final String NONE_PATH = "";
+
+    private static volatile MediaStoreCache instance;
+
+    private final LruCache<String, Uri> contentUriCache = new LruCache<>(MAX_SIZE);// path -> Uri
+    private final LruCache<String, Uri> duplicateUriCache = new LruCache<>(MAX_SIZE);// name+size -> Uri
+    private final LruCache<Uri, String> pathCache = new LruCache<>(MAX_SIZE);// Uri -> path
+
+    /**
+     * 缓存版本号，每次失效时+1，用于丢弃失效前发起的查询结果
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private MediaStoreCache(Context context) {
+        ContentObserver observer = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                invalidate();
+            }
+        };
+        ContentResolver contentResolver = context.getContentResolver();
+        contentResolver.registerContentObserver(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, true, observer);
+        contentResolver.registerContentObserver(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, true, observer);
+        contentResolver.registerContentObserver(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, true, observer);
+        contentResolver.registerContentObserver(MediaStore.Files.getContentUri("external"), true, observer);
+    }
+
+    public static MediaStoreCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MediaStoreCache.class) {
+                if (instance == null) {
+                    instance = new MediaStoreCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取 当前缓存版本号(查询前获取，写入缓存时传入)
+     *
+     * @return long
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * 获取 ContentUri
+     *
+     * @param path path
+     * @return Uri(未缓存返回null，查询不到返回 NONE_URI，使用 unwrap 转换)
+     */
+    public Uri getContentUri(String path) {
+        return contentUriCache.get(path);
+    }
+
+    public void putContentUri(long generation, String path, Uri uri) {
+        if (this.generation.get() == generation) {
+            contentUriCache.put(path, wrap(uri));
+        }
+    }
+
+    /**
+     * 获取 重复文件Uri
+     *
+     * @param name name
+     * @param size size
+     * @return Uri(未缓存返回null，查询不到返回 NONE_URI，使用 unwrap 转换)
+     */
+    public Uri getDuplicateUri(String name, long size) {
+        return duplicateUriCache.get(getDuplicateKey(name, size));
+    }
+
+    public void putDuplicateUri(long generation, String name, long size, Uri uri) {
+        if (this.generation.get() == generation) {
+            duplicateUriCache.put(getDuplicateKey(name, size), wrap(uri));
+        }
+    }
+
+    /**
+     * 获取 Path
+     *
+     * @param uri uri
+     * @return String(未缓存返回null，查询不到返回 NONE_PATH，使用 unwrap 转换)
+     */
+    public String getPath(Uri uri) {
+        return pathCache.get(uri);
+    }
+
+    public void putPath(long generation, Uri uri, String path) {
+        if (this.generation.get() == generation) {
+            pathCache.put(uri, path == null ? NONE_PATH : path);
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        contentUriCache.evictAll();
+        duplicateUriCache.evictAll();
+        pathCache.evictAll();
+    }
+
+    public int getHitCount() {
+        return contentUriCache.hitCount() + duplicateUriCache.hitCount() + pathCache.hitCount();
+    }
+
+    public int getMissCount() {
+        return contentUriCache.missCount() + duplicateUriCache.missCount() + pathCache.missCount();
+    }
+
+    /**
+     * 获取 淘汰次数(包括失效时清空的条目)
+     *
+     * @return int
+     */
+    public int getEvictionCount() {
+        return contentUriCache.evictionCount() + duplicateUriCache.evictionCount() + pathCache.evictionCount();
+    }
+
+    public long getInvalidationCount() {
+        return generation.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "MediaStoreCache[hit=%d, miss=%d, eviction=%d, invalidation=%d, size=%d/%d/%d]",
+                getHitCount(), getMissCount(), getEvictionCount(), getInvalidationCount(),
+                contentUriCache.size(), duplicateUriCache.size(), pathCache.size());
+    }
+
+    private static String getDuplicateKey(String name, long size) {
+        return name + '|' + size;
+    }
+
+    private static Uri wrap(Uri uri) {
+        return uri == null ? NONE_URI : uri;
+    }
+
+    public static Uri unwrap(Uri uri) {
+        return uri == null || NONE_URI.equals(uri) ? null : uri;
+    }
+
+    public static String unwrap(String path) {
+        return path == null || NONE_PATH.equals(path) ? null : path;
+    }
+
+}
@@ -0,0 +1,467 @@
+package com.mask.sharelibrary;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.provider.MediaStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MediaStore 本地索引
+ * <p>
+ * 把 MediaStore.Files 集合同步到本地数据库，按 path、name+size、mimeType 查询时直接查本地：
+ * 1. 分页查询(_ID > 上一页最后的_ID)，只查询需要的列；
+ * 2. 首次全量同步，之后只同步变化的行：Android 11 及以上使用 generation_modified，否则使用 date_modified 和新增的_ID；
+ * 3. 增量无法得到删除的行，每次同步后分页查询所有_ID，删除本地多出的行；
+ * 4. MediaStore 版本变化(例如清除了媒体库数据)时重新全量同步。
+ * <p>
+ * Android 11 以下的限制：
+ * date_modified 是文件的修改时间，不是行的修改时间，重命名/移动文件或只修改了元数据时不会变化，增量同步不到；
+ * 因此超过 FULL_SYNC_INTERVAL 后重新全量比较一次(覆盖本地所有行)。
+ * <p>
+ * 注意：
+ * 索引只在 sync 后更新，查询结果可能不是最新的
+ */
+public class MediaStoreIndex extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "media_store_index.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String TABLE_MEDIA = "media";
+    private static final String TABLE_STATE = "state";
+
+    private static final String COLUMN_ID = "_id";
+    private static final String COLUMN_PATH = "path";
+    private static final String COLUMN_NAME = "name";
+    private static final String COLUMN_SIZE = "size";
+    private static final String COLUMN_MIME_TYPE = "mime_type";
+    private static final String COLUMN_DATE_MODIFIED = "date_modified";
+    private static final String COLUMN_GENERATION = "generation";
+    private static final String COLUMN_KEY = "key";
+    private static final String COLUMN_VALUE = "value";
+
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_GENERATION = "generation";
+    private static final String KEY_DATE_MODIFIED = "date_modified";
+    private static final String KEY_MAX_ID = "max_id";
+    private static final String KEY_FULL_SYNC_TIME = "full_sync_time";
+
+    /**
+     * 每页行数
+     */
+    private static final int PAGE_SIZE = 500;
+
+    /**
+     * 删除检查时每页_ID数
+     */
+    private static final int ID_PAGE_SIZE = 5000;
+
+    /**
+     * 全量同步间隔(Android 11 以下，date_modified 增量同步不到重命名等修改)
+     */
+    private static final long FULL_SYNC_INTERVAL = 24 * 60 * 60 * 1000;
+
+    private static final Uri COLLECTION_URI = MediaStore.Files.getContentUri("external");
+
+    private static volatile MediaStoreIndex instance;
+
+    private final Context context;
+
+    private MediaStoreIndex(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        this.context = context;
+    }
+
+    public static MediaStoreIndex getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MediaStoreIndex.class) {
+                if (instance == null) {
+                    instance = new MediaStoreIndex(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_MEDIA + " ("
+                + COLUMN_ID + " INTEGER PRIMARY KEY, "
+                + COLUMN_PATH + " TEXT, "
+                + COLUMN_NAME + " TEXT, "
+                + COLUMN_SIZE + " INTEGER, "
+                + COLUMN_MIME_TYPE + " TEXT, "
+                + COLUMN_DATE_MODIFIED + " INTEGER, "
+                + COLUMN_GENERATION + " INTEGER)");
+        db.execSQL("CREATE INDEX media_path ON " + TABLE_MEDIA + " (" + COLUMN_PATH + ")");
+        db.execSQL("CREATE INDEX media_name_size ON " + TABLE_MEDIA + " (" + COLUMN_NAME + ", " + COLUMN_SIZE + ")");
+        db.execSQL("CREATE INDEX media_mime_type ON " + TABLE_MEDIA + " (" + COLUMN_MIME_TYPE + ")");
+        db.execSQL("CREATE TABLE " + TABLE_STATE + " ("
+                + COLUMN_KEY + " TEXT PRIMARY KEY, "
+                + COLUMN_VALUE + " TEXT)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_MEDIA);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_STATE);
+        onCreate(db);
+    }
+
+    /**
+     * 同步(首次全量，之后增量；Android 11 以下每隔 FULL_SYNC_INTERVAL 全量一次)
+     * <p>
+     * 注意：
+     * 耗时操作，不要在主线程调用；需要读取存储权限，否则只能同步到自己的文件
+     *
+     * @return int 新增或更新的行数(失败返回-1)
+     */
+    public synchronized int sync() {
+        SQLiteDatabase db = getWritableDatabase();
+        ContentResolver contentResolver = context.getContentResolver();
+        boolean useGeneration = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+
+        // MediaStore 版本变化时重新全量同步
+        String version = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? MediaStore.getVersion(context) : null;
+        if (version != null && !version.equals(getState(db, KEY_VERSION))) {
+            db.beginTransaction();
+            try {
+                db.delete(TABLE_MEDIA, null, null);
+                db.delete(TABLE_STATE, null, null);
+                putState(db, KEY_VERSION, version);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        String lastGeneration = getState(db, KEY_GENERATION);
+        String lastDateModified = getState(db, KEY_DATE_MODIFIED);
+        String lastMaxId = getState(db, KEY_MAX_ID);
+        long maxGeneration = lastGeneration == null ? 0 : Long.parseLong(lastGeneration);
+        long maxDateModified = lastDateModified == null ? 0 : Long.parseLong(lastDateModified);
+        long maxId = lastMaxId == null ? 0 : Long.parseLong(lastMaxId);
+        String lastFullSyncTime = getState(db, KEY_FULL_SYNC_TIME);
+        long now = System.currentTimeMillis();
+        boolean fullSync = lastMaxId == null
+                || (!useGeneration && (lastFullSyncTime == null || Math.abs(now - Long.parseLong(lastFullSyncTime)) > FULL_SYNC_INTERVAL));
+
+        // 增量条件
+        String deltaSelection = null;
+        String[] deltaArgs = new String[0];
+        if (!fullSync) {
+            if (useGeneration) {
+                deltaSelection = MediaStore.MediaColumns.GENERATION_MODIFIED + ">?";
+                deltaArgs = new String[]{String.valueOf(maxGeneration)};
+            } else {
+                // date_modified 为秒，同一秒内的修改需要 >=
+                deltaSelection = "(" + MediaStore.MediaColumns.DATE_MODIFIED + ">=? OR " + MediaStore.MediaColumns._ID + ">?)";
+                deltaArgs = new String[]{String.valueOf(maxDateModified), String.valueOf(maxId)};
+            }
+        }
+
+        // Android 11 以下没有 generation_modified 列，读取时返回默认值
+        String[] projection = useGeneration ? MediaRow.COLUMNS : Arrays.copyOf(MediaRow.COLUMNS, MediaRow.COLUMNS.length - 1);
+        String selection = (deltaSelection == null ? "" : deltaSelection + " AND ") + MediaStore.MediaColumns._ID + ">?";
+        String[] selectionArgs = Arrays.copyOf(deltaArgs, deltaArgs.length + 1);
+
+        int count = 0;
+        MediaRow row = new MediaRow();
+        SQLiteStatement statement = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_MEDIA + " ("
+                + COLUMN_ID + ", " + COLUMN_PATH + ", " + COLUMN_NAME + ", " + COLUMN_SIZE + ", "
+                + COLUMN_MIME_TYPE + ", " + COLUMN_DATE_MODIFIED + ", " + COLUMN_GENERATION + ") VALUES (?,?,?,?,?,?,?)");
+        try {
+            long lastId = 0;
+            while (true) {
+                selectionArgs[selectionArgs.length - 1] = String.valueOf(lastId);
+                int pageCount = 0;
+                db.beginTransaction();
+                try (CursorReader reader = CursorReader.wrap(queryPage(contentResolver, projection, selection, selectionArgs, PAGE_SIZE), MediaRow.COLUMNS)) {
+                    if (reader == null) {
+                        return -1;
+                    }
+                    while (reader.moveToNext()) {
+                        row.read(reader);
+                        statement.clearBindings();
+                        statement.bindLong(1, row.id);
+                        bindString(statement, 2, row.path);
+                        bindString(statement, 3, row.name);
+                        statement.bindLong(4, row.size);
+                        bindString(statement, 5, row.mimeType);
+                        statement.bindLong(6, row.dateModified);
+                        statement.bindLong(7, row.generation);
+                        statement.executeInsert();
+
+                        lastId = row.id;
+                        maxId = Math.max(maxId, row.id);
+                        maxDateModified = Math.max(maxDateModified, row.dateModified);
+                        maxGeneration = Math.max(maxGeneration, row.generation);
+                        pageCount++;
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                count += pageCount;
+                if (pageCount < PAGE_SIZE) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        } finally {
+            statement.close();
+        }
+
+        if (lastMaxId != null && !removeDeleted(db, contentResolver)) {
+            return -1;
+        }
+
+        db.beginTransaction();
+        try {
+            putState(db, KEY_GENERATION, String.valueOf(maxGeneration));
+            putState(db, KEY_DATE_MODIFIED, String.valueOf(maxDateModified));
+            putState(db, KEY_MAX_ID, String.valueOf(maxId));
+            if (fullSync) {
+                putState(db, KEY_FULL_SYNC_TIME, String.valueOf(now));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return count;
+    }
+
+    /**
+     * 删除本地多出的行(MediaStore 中已删除)
+     *
+     * @param db              db
+     * @param contentResolver contentResolver
+     * @return boolean
+     */
+    private boolean removeDeleted(SQLiteDatabase db, ContentResolver contentResolver) {
+        // 分页查询所有_ID(升序)
+        long[] ids = new long[ID_PAGE_SIZE * 2];
+        int idCount = 0;
+        String[] projection = new String[]{MediaStore.MediaColumns._ID};
+        String selection = MediaStore.MediaColumns._ID + ">?";
+        String[] selectionArgs = new String[1];
+        long lastId = 0;
+        while (true) {
+            selectionArgs[0] = String.valueOf(lastId);
+            int pageCount;
+            if (ids.length - idCount < ID_PAGE_SIZE) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            try (CursorReader reader = CursorReader.wrap(queryPage(contentResolver, projection, selection, selectionArgs, ID_PAGE_SIZE), projection)) {
+                if (reader == null) {
+                    return false;
+                }
+                pageCount = reader.readLongs(0, ids, idCount, ID_PAGE_SIZE);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return false;
+            }
+            if (pageCount > 0) {
+                lastId = ids[idCount + pageCount - 1];
+            }
+            idCount += pageCount;
+            if (pageCount < ID_PAGE_SIZE) {
+                break;
+            }
+        }
+
+        List<Long> deleteIdList = new ArrayList<>();
+        try (Cursor cursor = db.query(TABLE_MEDIA, new String[]{COLUMN_ID}, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                if (Arrays.binarySearch(ids, 0, idCount, id) < 0) {
+                    deleteIdList.add(id);
+                }
+            }
+        }
+        if (deleteIdList.isEmpty()) {
+            return true;
+        }
+
+        db.beginTransaction();
+        try (SQLiteStatement statement = db.compileStatement("DELETE FROM " + TABLE_MEDIA + " WHERE " + COLUMN_ID + "=?")) {
+            for (long id : deleteIdList) {
+                statement.bindLong(1, id);
+                statement.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return true;
+    }
+
+    /**
+     * 分页查询(按_ID升序)
+     * <p>
+     * Android 11 及以上不支持在 sortOrder 中添加 LIMIT，使用 QUERY_ARG_LIMIT；
+     * 之前的版本 MediaProvider 不支持 QUERY_ARG_LIMIT，在 sortOrder 中添加 LIMIT
+     *
+     * @param contentResolver contentResolver
+     * @param projection      projection
+     * @param selection       selection
+     * @param selectionArgs   selectionArgs
+     * @param limit           limit
+     * @return Cursor
+     */
+    private static Cursor queryPage(ContentResolver contentResolver, String[] projection, String selection, String[] selectionArgs, int limit) {
+        String sortOrder = MediaStore.MediaColumns._ID + " ASC";
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            Bundle queryArgs = new Bundle();
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, selection);
+            queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, selectionArgs);
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, sortOrder);
+            queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+            return contentResolver.query(COLLECTION_URI, projection, queryArgs, null);
+        }
+        return contentResolver.query(COLLECTION_URI, projection, selection, selectionArgs, sortOrder + " LIMIT " + limit);
+    }
+
+    /**
+     * 获取 ContentUri(根据path)
+     *
+     * @param path path
+     * @return Uri(索引中没有返回null)
+     */
+    public Uri getContentUri(String path) {
+        return queryUri(COLUMN_PATH + "=?", new String[]{path});
+    }
+
+    /**
+     * 获取 Uri(根据name+size)
+     *
+     * @param name name
+     * @param size size
+     * @return Uri(索引中没有返回null)
+     */
+    public Uri getUri(String name, long size) {
+        return queryUri(COLUMN_NAME + "=? AND " + COLUMN_SIZE + "=?", new String[]{name, String.valueOf(size)});
+    }
+
+    /**
+     * 获取 Uri列表(根据mimeType)
+     *
+     * @param mimeType mimeType(例如："image/png"，或"image/*"匹配所有图片)
+     * @return List<Uri>
+     */
+    public List<Uri> getUris(String mimeType) {
+        String selection;
+        String[] selectionArgs;
+        if (mimeType.endsWith("/*")) {
+            // 范围查询可以使用索引("0"是"/"的下一个字符)
+            String prefix = mimeType.substring(0, mimeType.length() - 1);
+            selection = COLUMN_MIME_TYPE + ">=? AND " + COLUMN_MIME_TYPE + "<?";
+            selectionArgs = new String[]{prefix, prefix.substring(0, prefix.length() - 1) + "0"};
+        } else {
+            selection = COLUMN_MIME_TYPE + "=?";
+            selectionArgs = new String[]{mimeType};
+        }
+
+        List<Uri> uriList = new ArrayList<>();
+        String[] columns = new String[]{COLUMN_ID, COLUMN_MIME_TYPE};
+        try (Cursor cursor = getReadableDatabase().query(TABLE_MEDIA, columns, selection, selectionArgs, null, null, COLUMN_ID)) {
+            while (cursor.moveToNext()) {
+                uriList.add(ContentUris.withAppendedId(FileUtils.getContentUri(cursor.getString(1)), cursor.getLong(0)));
+            }
+        }
+        return uriList;
+    }
+
+    /**
+     * 获取 索引行数
+     *
+     * @return long
+     */
+    public long getCount() {
+        try (SQLiteStatement statement = getReadableDatabase().compileStatement("SELECT COUNT(*) FROM " + TABLE_MEDIA)) {
+            return statement.simpleQueryForLong();
+        }
+    }
+
+    private Uri queryUri(String selection, String[] selectionArgs) {
+        Uri uri = null;
+        String[] columns = new String[]{COLUMN_ID, COLUMN_MIME_TYPE};
+        try (Cursor cursor = getReadableDatabase().query(TABLE_MEDIA, columns, selection, selectionArgs, null, null, null, "1")) {
+            if (cursor.moveToFirst()) {
+                // _ID 在各集合中是一致的，按 mimeType 返回对应集合的Uri
+                uri = ContentUris.withAppendedId(FileUtils.getContentUri(cursor.getString(1)), cursor.getLong(0));
+            }
+        }
+        return uri;
+    }
+
+    /**
+     * MediaStore 中的一行(同步时复用)
+     */
+    private static final class MediaRow implements CursorReader.Record {
+        static final String[] COLUMNS = new String[]{
+                MediaStore.MediaColumns._ID,
+                MediaStore.MediaColumns.DATA,
+                MediaStore.MediaColumns.DISPLAY_NAME,
+                MediaStore.MediaColumns.SIZE,
+                MediaStore.MediaColumns.MIME_TYPE,
+                MediaStore.MediaColumns.DATE_MODIFIED,
+                MediaStore.MediaColumns.GENERATION_MODIFIED,// 必须在最后
+        };
+
+        long id;
+        String path;
+        String name;
+        long size;
+        String mimeType;
+        long dateModified;
+        long generation;
+
+        @Override
+        public void read(CursorReader reader) {
+            // 与 COLUMNS 的顺序一致
+            id = reader.getLong(0);
+            path = reader.getString(1);
+            name = reader.getString(2);
+            size = reader.getLong(3);
+            mimeType = reader.getString(4);
+            dateModified = reader.getLong(5);
+            generation = reader.getLong(6, 0);
+        }
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static String getState(SQLiteDatabase db, String key) {
+        String value = null;
+        try (Cursor cursor = db.query(TABLE_STATE, new String[]{COLUMN_VALUE}, COLUMN_KEY + "=?", new String[]{key}, null, null, null)) {
+            if (cursor.moveToFirst()) {
+                value = cursor.getString(0);
+            }
+        }
+        return value;
+    }
+
+    private static void putState(SQLiteDatabase db, String key, String value) {
+        db.execSQL("INSERT OR REPLACE INTO " + TABLE_STATE + " (" + COLUMN_KEY + ", " + COLUMN_VALUE + ") VALUES (?,?)", new Object[]{key, value});
+    }
+
+}
@@ -0,0 +1,310 @@
+package com.mask.sharelibrary;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * MimeType查询
+ * <p>
+ * 1. 扩展名 -> MimeType 使用预先生成的开放寻址表，直接在文件名上计算hash和比较(忽略大小写)，不分配对象；
+ * 2. 没有扩展名或扩展名未知时，可以读取文件头部的魔数判断(PNG、JPEG、MP4、PDF、ZIP等)。
+ */
+public final class MimeTypes {
+
+    /**
+     * 表大小(2的幂，至少为扩展名数量的2倍)
+     */
+    private static final int TABLE_SIZE = 512;
+    private static final int MASK = TABLE_SIZE - 1;
+
+    /**
+     * 扩展名最大长度(超出时直接认为未知)
+     */
+    private static final int MAX_EXTENSION_LENGTH = 8;
+
+    /**
+     * 魔数判断需要的头部字节数
+     */
+    public static final int HEADER_SIZE = 16;
+
+    private static final String[] extensions = new String[TABLE_SIZE];
+    private static final String[] mimeTypes = new String[TABLE_SIZE];
+
+    static {
+        // 图片
+        put("jpg", "image/jpeg");
+        put("jpeg", "image/jpeg");
+        put("jpe", "image/jpeg");
+        put("png", "image/png");
+        put("gif", "image/gif");
+        put("bmp", "image/bmp");
+        put("webp", "image/webp");
+        put("heic", "image/heic");
+        put("heif", "image/heif");
+        put("ico", "image/x-icon");
+        put("svg", "image/svg+xml");
+        put("tif", "image/tiff");
+        put("tiff", "image/tiff");
+        put("dng", "image/x-adobe-dng");
+        // 视频
+        put("mp4", "video/mp4");
+        put("m4v", "video/mp4");
+        put("3gp", "video/3gpp");
+        put("3gpp", "video/3gpp");
+        put("3g2", "video/3gpp2");
+        put("webm", "video/webm");
+        put("mkv", "video/x-matroska");
+        put("avi", "video/avi");
+        put("mov", "video/quicktime");
+        put("wmv", "video/x-ms-wmv");
+        put("flv", "video/x-flv");
+        put("ts", "video/mp2ts");
+        put("mpg", "video/mpeg");
+        put("mpeg", "video/mpeg");
+        // 音频
+        put("mp3", "audio/mpeg");
+        put("m4a", "audio/mp4");
+        put("aac", "audio/aac");
+        put("wav", "audio/x-wav");
+        put("ogg", "audio/ogg");
+        put("oga", "audio/ogg");
+        put("opus", "audio/ogg");
+        put("flac", "audio/flac");
+        put("amr", "audio/amr");
+        put("awb", "audio/amr-wb");
+        put("mid", "audio/midi");
+        put("midi", "audio/midi");
+        put("wma", "audio/x-ms-wma");
+        put("m3u", "audio/x-mpegurl");
+        // 文档
+        put("txt", "text/plain");
+        put("log", "text/plain");
+        put("csv", "text/csv");
+        put("htm", "text/html");
+        put("html", "text/html");
+        put("xml", "text/xml");
+        put("css", "text/css");
+        put("js", "application/javascript");
+        put("json", "application/json");
+        put("rtf", "application/rtf");
+        put("pdf", "application/pdf");
+        put("doc", "application/msword");
+        put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        put("xls", "application/vnd.ms-excel");
+        put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        put("ppt", "application/vnd.ms-powerpoint");
+        put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+        put("odt", "application/vnd.oasis.opendocument.text");
+        put("ods", "application/vnd.oasis.opendocument.spreadsheet");
+        put("epub", "application/epub+zip");
+        put("vcf", "text/x-vcard");
+        put("ics", "text/calendar");
+        // 压缩包/安装包
+        put("zip", "application/zip");
+        put("gz", "application/gzip");
+        put("tgz", "application/gzip");
+        put("tar", "application/x-tar");
+        put("rar", "application/x-rar-compressed");
+        put("7z", "application/x-7z-compressed");
+        put("apk", "application/vnd.android.package-archive");
+        put("jar", "application/java-archive");
+        // 字体
+        put("ttf", "font/ttf");
+        put("otf", "font/otf");
+    }
+
+    private MimeTypes() {
+    }
+
+    private static void put(String extension, String mimeType) {
+        int index = hash(extension, 0, extension.length()) & MASK;
+        while (extensions[index] != null) {
+            index = (index + 1) & MASK;
+        }
+        extensions[index] = extension;
+        mimeTypes[index] = mimeType;
+    }
+
+    /**
+     * 计算hash(忽略ASCII大小写)
+     *
+     * @param str   str
+     * @param start start
+     * @param end   end
+     * @return int
+     */
+    private static int hash(String str, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            hash = 31 * hash + c;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 获取 文件MimeType(根据扩展名，忽略大小写)
+     *
+     * @param name name
+     * @return String MimeType(没有扩展名或扩展名未知时为null)
+     */
+    public static String getMimeType(String name) {
+        if (name == null) {
+            return null;
+        }
+        int start = name.lastIndexOf('.') + 1;
+        int length = name.length() - start;
+        if (start <= 1 || length == 0 || length > MAX_EXTENSION_LENGTH) {
+            return null;// 与 FileUtils.getExtension 一致，"."开头的文件名没有扩展名
+        }
+
+        int index = hash(name, start, name.length()) & MASK;
+        String extension;
+        while ((extension = extensions[index]) != null) {
+            if (extension.length() == length && name.regionMatches(true, start, extension, 0, length)) {
+                return mimeTypes[index];
+            }
+            index = (index + 1) & MASK;
+        }
+        return null;
+    }
+
+    /**
+     * 获取 文件MimeType(根据文件头部的魔数)
+     *
+     * @param file file
+     * @return String MimeType(无法识别时为null)
+     */
+    public static String sniffMimeType(File file) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return sniffMimeType(inputStream);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * 获取 MimeType(根据头部的魔数，会读取 HEADER_SIZE 字节)
+     *
+     * @param inputStream inputStream
+     * @return String MimeType(无法识别时为null)
+     * @throws IOException IOException
+     */
+    public static String sniffMimeType(InputStream inputStream) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int length = 0;
+        int read;
+        while (length < header.length && (read = inputStream.read(header, length, header.length - length)) > 0) {
+            length += read;
+        }
+        return sniffMimeType(header, length);
+    }
+
+    /**
+     * 获取 MimeType(根据头部的魔数)
+     *
+     * @param header header
+     * @param length 有效长度
+     * @return String MimeType(无法识别时为null)
+     */
+    public static String sniffMimeType(byte[] header, int length) {
+        if (startsWith(header, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(header, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, length, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(header, length, 0, 'B', 'M')) {
+            return "image/bmp";
+        }
+        if (startsWith(header, length, 0, 'R', 'I', 'F', 'F')) {
+            if (startsWith(header, length, 8, 'W', 'E', 'B', 'P')) {
+                return "image/webp";
+            }
+            if (startsWith(header, length, 8, 'W', 'A', 'V', 'E')) {
+                return "audio/x-wav";
+            }
+            if (startsWith(header, length, 8, 'A', 'V', 'I', ' ')) {
+                return "video/avi";
+            }
+            return null;
+        }
+        if (startsWith(header, length, 4, 'f', 't', 'y', 'p')) {
+            // ISO Base Media(MP4/MOV/3GP/HEIF)，根据 major brand 区分
+            if (startsWith(header, length, 8, 'h', 'e', 'i', 'c')
+                    || startsWith(header, length, 8, 'h', 'e', 'i', 'x')) {
+                return "image/heic";
+            }
+            if (startsWith(header, length, 8, 'm', 'i', 'f', '1')) {
+                return "image/heif";
+            }
+            if (startsWith(header, length, 8, 'q', 't', ' ', ' ')) {
+                return "video/quicktime";
+            }
+            if (startsWith(header, length, 8, 'M', '4', 'A', ' ')) {
+                return "audio/mp4";
+            }
+            if (startsWith(header, length, 8, '3', 'g', 'p')) {
+                return "video/3gpp";
+            }
+            return "video/mp4";
+        }
+        if (startsWith(header, length, 0, 0x1A, 0x45, 0xDF, 0xA3)) {
+            return "video/x-matroska";// webm 也是该格式
+        }
+        if (startsWith(header, length, 0, 'I', 'D', '3')
+                || (length >= 2 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xE0) == 0xE0 && (header[1] & 0x06) != 0)) {
+            return "audio/mpeg";
+        }
+        if (startsWith(header, length, 0, 'O', 'g', 'g', 'S')) {
+            return "audio/ogg";
+        }
+        if (startsWith(header, length, 0, 'f', 'L', 'a', 'C')) {
+            return "audio/flac";
+        }
+        if (startsWith(header, length, 0, '#', '!', 'A', 'M', 'R')) {
+            return "audio/amr";
+        }
+        if (startsWith(header, length, 0, '%', 'P', 'D', 'F')) {
+            return "application/pdf";
+        }
+        if (startsWith(header, length, 0, 'P', 'K', 0x03, 0x04)) {
+            return "application/zip";// docx/apk等也是zip，没有扩展名时无法区分
+        }
+        if (startsWith(header, length, 0, 0x1F, 0x8B)) {
+            return "application/gzip";
+        }
+        if (startsWith(header, length, 0, 'R', 'a', 'r', '!')) {
+            return "application/x-rar-compressed";
+        }
+        if (startsWith(header, length, 0, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C)) {
+            return "application/x-7z-compressed";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int length, int offset, int... magic) {
+        if (offset + magic.length > length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((header[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,367 @@
+package com.mask.sharelibrary;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.ParcelFileDescriptor;
+import android.provider.MediaStore;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 可断点续传的 复制文件到外部
+ * <p>
+ * 用于大文件导出，进程中途被杀死后可以从上次提交的位置继续复制：
+ * 1. 日志(SharedPreferences)记录 源文件 -> 待处理的Uri、源文件size/mtime、已提交的字节数；
+ * 2. 每复制 CHECKPOINT_SIZE 字节，force 写入存储后再提交字节数；
+ * 3. 重新导出时以"rw"模式打开Uri，逐段比较已写入部分与源文件一致后，从提交位置继续复制；
+ * 4. 启动时调用 sweep 清理源文件已变化的日志，以及日志中不存在的过期待处理Uri。
+ */
+public class ResumableExporter {
+
+    private static final String PREFS_NAME = "resumable_export";
+
+    private static final String KEY_URI = "uri";
+    private static final String KEY_SIZE = "size";
+    private static final String KEY_MTIME = "mtime";
+    private static final String KEY_OFFSET = "offset";
+    private static final String KEY_TIME = "time";
+
+    /**
+     * 提交间隔
+     */
+    private static final long CHECKPOINT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * 续传时校验已写入部分的分段大小
+     */
+    private static final int VERIFY_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * 日志过期时间(过期后不再续传)
+     */
+    private static final long JOURNAL_EXPIRE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * 待处理Uri过期时间(不在日志中且超过该时间的待处理Uri会被清理)
+     */
+    private static final long PENDING_EXPIRE_SECONDS = 24 * 60 * 60;
+
+    private ResumableExporter() {
+    }
+
+    /**
+     * 复制文件到外部(可断点续传)
+     * <p>
+     * 复制失败时保留日志和待处理的Uri，下次调用时续传；取消时删除。
+     *
+     * @param context            context
+     * @param dirName            目录名(例如："/Pictures/WeChat"中的"WeChat")
+     * @param file               file
+     * @param cancellationSignal 取消信号(可为null)
+     * @param listener           进度回调(可为null，在当前线程回调)
+     * @return Uri
+     */
+    public static Uri copyFileToExternal(Context context, String dirName, File file,
+                                         CancellationSignal cancellationSignal, StreamCopier.ProgressListener listener) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long mtime = file.lastModified();
+        SharedPreferences prefs = getPrefs(context);
+        ContentResolver contentResolver = context.getContentResolver();
+        long startTime = FileOpsMetrics.begin();
+
+        // 获取是否有重复的文件，避免重复复制
+        FileDigestIndex digestIndex = FileDigestIndex.getInstance(context);
+        String digest;
+        try {
+            digest = digestIndex.getDigest(file, cancellationSignal);
+        } catch (OperationCanceledException e) {
+            FileOpsMetrics.fail(FileOpsMetrics.OP_RESUMABLE_EXPORT, startTime, e);
+            throw e;
+        }
+
+        // 读取日志
+        Uri uri = null;
+        long offset = 0;
+        JSONObject journal = readJournal(prefs, path);
+        if (journal != null) {
+            Uri journalUri = Uri.parse(journal.optString(KEY_URI));
+            if (journal.optLong(KEY_SIZE) == size && journal.optLong(KEY_MTIME) == mtime) {
+                uri = journalUri;
+                offset = journal.optLong(KEY_OFFSET);
+            } else {
+                FileUtils.delete(context, journalUri);// 源文件已变化
+                removeJournal(prefs, path);
+            }
+        }
+
+        if (uri == null) {
+            Uri duplicateUri = FileUtils.getDuplicateFileUri(context, file, digest, dirName);
+            if (duplicateUri != null) {
+                FileOpsMetrics.end(FileOpsMetrics.OP_RESUMABLE_EXPORT, startTime);
+                return duplicateUri;
+            }
+            if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                FileOpsMetrics.fail(FileOpsMetrics.OP_RESUMABLE_EXPORT, startTime, OperationCanceledException.class.getName());
+                cancellationSignal.throwIfCanceled();
+            }
+
+            uri = contentResolver.insert(FileUtils.getContentUri(FileUtils.getMimeType(file)), FileUtils.getInsertValues(file, dirName));
+            if (uri == null) {
+                FileOpsMetrics.fail(FileOpsMetrics.OP_RESUMABLE_EXPORT, startTime, FileOpsMetrics.FAILURE_NO_RESULT);
+                return null;
+            }
+            writeJournal(prefs, path, uri, size, mtime, 0);
+        }
+
+        // 复制文件
+        try {
+            ParcelFileDescriptor pfd = contentResolver.openFileDescriptor(uri, "rw");
+            if (pfd == null) {
+                throw new FileNotFoundException("openFileDescriptor failed: " + uri);
+            }
+            // AutoCloseOutputStream 关闭时会关闭 pfd，pfd 不需要再单独关闭
+            try (FileOutputStream outputStream = new ParcelFileDescriptor.AutoCloseOutputStream(pfd);
+                 FileInputStream inputStream = new FileInputStream(file)) {
+                FileChannel inChannel = inputStream.getChannel();
+                FileChannel outChannel = outputStream.getChannel();
+                if (offset > 0 && !verifyPrefix(inChannel, outChannel, offset)) {
+                    offset = 0;// 已写入部分不一致，从头开始
+                }
+                outChannel.truncate(offset);
+                outChannel.position(offset);
+                long resumeOffset = offset;
+                long copyStartTime = FileOpsMetrics.begin();
+                if (listener != null && offset > 0) {
+                    listener.onProgress(offset);
+                }
+
+                while (offset < size) {
+                    if (cancellationSignal != null) {
+                        cancellationSignal.throwIfCanceled();
+                    }
+                    long end = Math.min(offset + CHECKPOINT_SIZE, size);
+                    while (offset < end) {
+                        long transferred = inChannel.transferTo(offset, end - offset, outChannel);
+                        if (transferred <= 0) {
+                            throw new IOException("source truncated: " + path);
+                        }
+                        offset += transferred;
+                        if (listener != null) {
+                            listener.onProgress(offset);
+                        }
+                    }
+                    outChannel.force(false);
+                    writeJournal(prefs, path, uri, size, mtime, offset);
+                }
+                FileOpsMetrics.copied(offset - resumeOffset, copyStartTime);// 只统计本次复制的字节数
+            }
+        } catch (OperationCanceledException e) {
+            FileUtils.delete(context, uri);
+            removeJournal(prefs, path);
+            FileOpsMetrics.fail(FileOpsMetrics.OP_RESUMABLE_EXPORT, startTime, e);
+            throw e;
+        } catch (FileNotFoundException e) {
+            // Uri已失效(例如被用户删除)，下次重新导出
+            e.printStackTrace();
+            removeJournal(prefs, path);
+            FileOpsMetrics.fail(FileOpsMetrics.OP_RESUMABLE_EXPORT, startTime, e);
+            return null;
+        } catch (Exception e) {
+            // 保留日志，下次续传
+            e.printStackTrace();
+            FileOpsMetrics.fail(FileOpsMetrics.OP_RESUMABLE_EXPORT, startTime, e);
+            return null;
+        }
+
+        // 更新文件的处理状态(失败时保留日志，下次校验已写入部分后重新更新)
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.MediaColumns.IS_PENDING, 0);// 文件的处理状态(防止写入过程中被其他App查询到，写入完成后记得修改回来)
+
+            try {
+                if (contentResolver.update(uri, values, null, null) <= 0) {
+                    FileOpsMetrics.fail(FileOpsMetrics.OP_RESUMABLE_EXPORT, startTime, FileOpsMetrics.FAILURE_NO_RESULT);
+                    return null;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                FileOpsMetrics.fail(FileOpsMetrics.OP_RESUMABLE_EXPORT, startTime, e);
+                return null;
+            }
+        }
+
+        removeJournal(prefs, path);
+        digestIndex.putExportUri(digest, dirName, uri);
+        FileOpsMetrics.end(FileOpsMetrics.OP_RESUMABLE_EXPORT, startTime);
+        return uri;
+    }
+
+    /**
+     * 清理
+     * <p>
+     * 1. 删除源文件已变化或已过期的日志，以及对应的待处理Uri；
+     * 2. 删除不在日志中且已过期的待处理Uri(Android 10 及以上，只能查询到自己的待处理Uri)。
+     * <p>
+     * 注意：
+     * 应在启动时、没有导出任务执行时调用，耗时操作，不要在主线程调用
+     *
+     * @param context context
+     */
+    public static void sweep(Context context) {
+        SharedPreferences prefs = getPrefs(context);
+        long now = System.currentTimeMillis();
+
+        Set<Uri> journalUriSet = new HashSet<>();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            String path = entry.getKey();
+            JSONObject journal = readJournal(prefs, path);
+            if (journal == null) {
+                removeJournal(prefs, path);
+                continue;
+            }
+            Uri uri = Uri.parse(journal.optString(KEY_URI));
+            File file = new File(path);
+            boolean stale = !file.isFile()
+                    || file.length() != journal.optLong(KEY_SIZE)
+                    || file.lastModified() != journal.optLong(KEY_MTIME)
+                    || now - journal.optLong(KEY_TIME) > JOURNAL_EXPIRE_MILLIS;
+            if (stale) {
+                FileUtils.delete(context, uri);
+                removeJournal(prefs, path);
+            } else {
+                journalUriSet.add(uri);
+            }
+        }
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return;
+        }
+        ContentResolver contentResolver = context.getContentResolver();
+        Uri[] contentUris = new Uri[]{
+                MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
+                MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
+                MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                MediaStore.Files.getContentUri("external"),
+        };
+        String[] projection = new String[]{MediaStore.MediaColumns._ID};
+        String selection = MediaStore.MediaColumns.IS_PENDING + "=1 AND " + MediaStore.MediaColumns.DATE_ADDED + "<?";
+        String[] selectionArgs = new String[]{String.valueOf(now / 1000 - PENDING_EXPIRE_SECONDS)};
+        for (Uri contentUri : contentUris) {
+            try (Cursor cursor = contentResolver.query(MediaStore.setIncludePending(contentUri), projection, selection, selectionArgs, null)) {
+                if (cursor == null) {
+                    continue;
+                }
+                while (cursor.moveToNext()) {
+                    Uri uri = ContentUris.withAppendedId(contentUri, cursor.getLong(0));
+                    if (!journalUriSet.contains(uri)) {
+                        FileUtils.delete(context, uri);
+                    }
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 校验已写入部分(逐段比较 [0, offset) 的全部内容，不一致时提前返回)
+     * <p>
+     * 只在续传时调用一次，需要额外读取 2 * offset 字节，但能发现已写入部分中间被修改或损坏的情况
+     *
+     * @param inChannel  inChannel
+     * @param outChannel outChannel
+     * @param offset     已提交的字节数
+     * @return boolean
+     * @throws IOException IOException
+     */
+    private static boolean verifyPrefix(FileChannel inChannel, FileChannel outChannel, long offset) throws IOException {
+        if (outChannel.size() < offset) {
+            return false;
+        }
+        int bufferSize = (int) Math.min(VERIFY_BUFFER_SIZE, offset);
+        ByteBuffer inBuffer = ByteBuffer.allocate(bufferSize);
+        ByteBuffer outBuffer = ByteBuffer.allocate(bufferSize);
+        for (long position = 0; position < offset; position += bufferSize) {
+            int length = (int) Math.min(bufferSize, offset - position);
+            inBuffer.clear().limit(length);
+            outBuffer.clear().limit(length);
+            readFully(inChannel, inBuffer, position);
+            readFully(outChannel, outBuffer, position);
+            if (inBuffer.remaining() != length || !inBuffer.equals(outBuffer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static JSONObject readJournal(SharedPreferences prefs, String path) {
+        String value = prefs.getString(path, null);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new JSONObject(value);
+        } catch (JSONException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void writeJournal(SharedPreferences prefs, String path, Uri uri, long size, long mtime, long offset) {
+        try {
+            JSONObject journal = new JSONObject();
+            journal.put(KEY_URI, uri.toString());
+            journal.put(KEY_SIZE, size);
+            journal.put(KEY_MTIME, mtime);
+            journal.put(KEY_OFFSET, offset);
+            journal.put(KEY_TIME, System.currentTimeMillis());
+            prefs.edit().putString(path, journal.toString()).commit();// 同步写入，保证进程被杀死后日志有效
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void removeJournal(SharedPreferences prefs, String path) {
+        prefs.edit().remove(path).commit();
+    }
+
+}
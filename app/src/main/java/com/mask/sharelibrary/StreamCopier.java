@@ -0,0 +1,442 @@
+package com.mask.sharelibrary;
+
+import android.os.CancellationSignal;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 流复制
+ * <p>
+ * 1. 两端都是文件(FileInputStream/FileOutputStream，包括 ParcelFileDescriptor.AutoCloseOutputStream)时，
+ * 使用 FileChannel.transferTo 复制，由内核完成数据搬运，不经过Java堆；
+ * 2. 其他情况使用缓冲区复制，根据文件大小选择初始缓冲区大小，复制过程中根据吞吐量调整，
+ * 缓冲区从多个复制共用的缓冲区池中获取(总内存有上限)；
+ * 3. copyPipelined 读取和写入在两个线程中进行(环形缓冲区)，读取下一段的同时写入上一段，并同时计算内容摘要。
+ * <p>
+ * 支持取消(CancellationSignal)和进度回调(ProgressListener)，每复制一段检查/回调一次。
+ */
+public class StreamCopier {
+
+    /**
+     * 缓冲区大小(默认、流水线复制)
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 自适应缓冲区大小范围
+     */
+    private static final int MIN_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * 缓冲池总内存上限
+     */
+    private static final long BUFFER_POOL_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * 吞吐量采样：每段至少复制的缓冲区次数、字节数(太短时计时误差大)
+     */
+    private static final int SAMPLE_CHUNKS = 8;
+    private static final long SAMPLE_MIN_BYTES = 1024 * 1024;
+
+    /**
+     * 吞吐量变化小于该比例时认为没有变化(不调整缓冲区大小)
+     */
+    private static final double THROUGHPUT_TOLERANCE = 0.1;
+
+    /**
+     * transferTo 单次最大长度(部分系统单次调用有2GB限制)
+     */
+    private static final long TRANSFER_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * 流水线复制的环形缓冲区数量(读取线程最多领先写入线程 RING_SIZE - 1 段)
+     */
+    private static final int RING_SIZE = 3;
+
+    /**
+     * 流水线复制：读取结束/读取失败的标记(缓冲区序号之外的值)
+     */
+    private static final int SLOT_END = -1;
+    private static final int SLOT_ERROR = -2;
+
+    /**
+     * 流水线复制：写入线程等待时检查取消的间隔
+     */
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private static final BufferPool bufferPool = new BufferPool(MIN_BUFFER_SIZE, MAX_BUFFER_SIZE, BUFFER_POOL_BYTES);
+
+    private StreamCopier() {
+    }
+
+    /**
+     * 进度回调(在复制线程回调)
+     */
+    public interface ProgressListener {
+
+        /**
+         * 进度
+         *
+         * @param bytes 已复制的字节数
+         */
+        void onProgress(long bytes);
+    }
+
+    /**
+     * 复制(不关闭流)
+     *
+     * @param inputStream  inputStream
+     * @param outputStream outputStream
+     * @return long 复制的字节数
+     * @throws IOException IOException
+     */
+    public static long copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        return copy(inputStream, outputStream, null, null);
+    }
+
+    /**
+     * 复制(不关闭流)
+     *
+     * @param inputStream        inputStream
+     * @param outputStream       outputStream
+     * @param cancellationSignal 取消信号(可为null)，取消时抛出 OperationCanceledException
+     * @param listener           进度回调(可为null)
+     * @return long 复制的字节数
+     * @throws IOException IOException
+     */
+    public static long copy(InputStream inputStream, OutputStream outputStream,
+                            CancellationSignal cancellationSignal, ProgressListener listener) throws IOException {
+        if (inputStream instanceof FileInputStream && outputStream instanceof FileOutputStream) {
+            FileChannel inChannel = ((FileInputStream) inputStream).getChannel();
+            FileChannel outChannel = ((FileOutputStream) outputStream).getChannel();
+            if (isRegularFile(inChannel)) {
+                return copy(inChannel, outChannel, cancellationSignal, listener);
+            }
+        }
+        return copyBuffered(inputStream, outputStream, cancellationSignal, listener);
+    }
+
+    /**
+     * 复制(从 inChannel 当前位置开始，写入 outChannel 当前位置)
+     *
+     * @param inChannel  inChannel
+     * @param outChannel outChannel
+     * @return long 复制的字节数
+     * @throws IOException IOException
+     */
+    public static long copy(FileChannel inChannel, FileChannel outChannel) throws IOException {
+        return copy(inChannel, outChannel, null, null);
+    }
+
+    /**
+     * 复制(从 inChannel 当前位置开始，写入 outChannel 当前位置)
+     *
+     * @param inChannel          inChannel
+     * @param outChannel         outChannel
+     * @param cancellationSignal 取消信号(可为null)
+     * @param listener           进度回调(可为null)
+     * @return long 复制的字节数
+     * @throws IOException IOException
+     */
+    public static long copy(FileChannel inChannel, FileChannel outChannel,
+                            CancellationSignal cancellationSignal, ProgressListener listener) throws IOException {
+        long position = inChannel.position();
+        long size = inChannel.size();
+        long count = 0;
+        while (position + count < size) {
+            if (cancellationSignal != null) {
+                cancellationSignal.throwIfCanceled();
+            }
+            long transferred = inChannel.transferTo(position + count, Math.min(TRANSFER_CHUNK_SIZE, size - position - count), outChannel);
+            if (transferred <= 0) {
+                break;// 文件被截断
+            }
+            count += transferred;
+            if (listener != null) {
+                listener.onProgress(count);
+            }
+        }
+        inChannel.position(position + count);
+        return count;
+    }
+
+    /**
+     * 复制(使用缓冲区)
+     *
+     * @param inputStream  inputStream
+     * @param outputStream outputStream
+     * @return long 复制的字节数
+     * @throws IOException IOException
+     */
+    public static long copyBuffered(InputStream inputStream, OutputStream outputStream) throws IOException {
+        return copyBuffered(inputStream, outputStream, null, null);
+    }
+
+    /**
+     * 复制(使用缓冲区)
+     * <p>
+     * 1. 根据剩余长度选择初始缓冲区大小(小文件使用小缓冲区，大文件使用大缓冲区)；
+     * 2. 每复制一段统计吞吐量，比上一段快时继续同方向调整(翻倍/减半)，慢时反方向调整，变化不大时保持。
+     *
+     * @param inputStream        inputStream
+     * @param outputStream       outputStream
+     * @param cancellationSignal 取消信号(可为null)
+     * @param listener           进度回调(可为null)
+     * @return long 复制的字节数
+     * @throws IOException IOException
+     */
+    public static long copyBuffered(InputStream inputStream, OutputStream outputStream,
+                                    CancellationSignal cancellationSignal, ProgressListener listener) throws IOException {
+        byte[] buffer = bufferPool.obtain(getInitialBufferSize(getRemaining(inputStream)));
+        try {
+            long count = 0;
+            int byteRead;
+            int direction = 1;// 1：增大，-1：减小
+            double lastThroughput = 0;
+            long sampleBytes = 0;
+            long sampleStartTime = System.nanoTime();
+            while ((byteRead = inputStream.read(buffer)) != -1) {
+                if (cancellationSignal != null) {
+                    cancellationSignal.throwIfCanceled();
+                }
+                outputStream.write(buffer, 0, byteRead);
+                count += byteRead;
+                if (listener != null) {
+                    listener.onProgress(count);
+                }
+
+                // 统计吞吐量，调整缓冲区大小
+                sampleBytes += byteRead;
+                if (sampleBytes < Math.max(SAMPLE_MIN_BYTES, (long) buffer.length * SAMPLE_CHUNKS)) {
+                    continue;
+                }
+                long time = System.nanoTime();
+                double throughput = sampleBytes / (double) Math.max(1, time - sampleStartTime);
+                boolean resize = true;
+                if (lastThroughput > 0) {
+                    if (throughput < lastThroughput * (1 - THROUGHPUT_TOLERANCE)) {
+                        direction = -direction;
+                    } else if (throughput < lastThroughput * (1 + THROUGHPUT_TOLERANCE)) {
+                        resize = false;
+                    }
+                }
+                int size = direction > 0 ? buffer.length << 1 : buffer.length >> 1;
+                if (resize && size >= MIN_BUFFER_SIZE && size <= MAX_BUFFER_SIZE) {
+                    bufferPool.release(buffer);
+                    buffer = null;
+                    buffer = bufferPool.obtain(size);
+                }
+                lastThroughput = throughput;
+                sampleBytes = 0;
+                sampleStartTime = System.nanoTime();
+            }
+            return count;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * 获取 初始缓冲区大小(剩余长度的1/8，限制在 MIN_BUFFER_SIZE ~ MAX_BUFFER_SIZE 之间)
+     *
+     * @param length 剩余长度(未知时为-1)
+     * @return int
+     */
+    static int getInitialBufferSize(long length) {
+        if (length < 0) {
+            return BUFFER_SIZE;
+        }
+        return bufferPool.getClassSize((int) Math.min(length / 8, MAX_BUFFER_SIZE));
+    }
+
+    /**
+     * 获取 剩余长度
+     *
+     * @param inputStream inputStream
+     * @return long 剩余长度(未知时为-1)
+     */
+    private static long getRemaining(InputStream inputStream) {
+        if (inputStream instanceof FileInputStream) {
+            FileChannel channel = ((FileInputStream) inputStream).getChannel();
+            try {
+                long size = channel.size();
+                if (size > 0) {
+                    return Math.max(0, size - channel.position());
+                }
+            } catch (IOException e) {
+                // 管道等不支持
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 流水线复制(不关闭流)
+     * <p>
+     * 1. 读取线程(IoExecutors.pipeline())将数据读入环形缓冲区，当前线程写入，读取和写入互相重叠；
+     * 2. 读取线程在读取后更新 messageDigest，不需要额外读取一遍文件(摘要为读取到的数据，不包括写入端)；
+     * 3. 返回前会等待读取线程结束，返回后可以直接关闭 inputStream。
+     * <p>
+     * 适合两端速度接近且都有明显延迟的场景(例如：写入不是文件描述符的输出流)，两端都是文件且不需要摘要时使用 copy(transferTo) 更快
+     *
+     * @param inputStream        inputStream
+     * @param outputStream       outputStream
+     * @param messageDigest      摘要(可为null)，复制完成后调用 digest() 获取结果
+     * @param cancellationSignal 取消信号(可为null)，取消时抛出 OperationCanceledException
+     * @param listener           进度回调(可为null，在当前线程回调已写入的字节数)
+     * @return long 复制的字节数
+     * @throws IOException IOException(读取线程的异常会在当前线程重新抛出)
+     */
+    public static long copyPipelined(final InputStream inputStream, OutputStream outputStream, final MessageDigest messageDigest,
+                                     CancellationSignal cancellationSignal, ProgressListener listener) throws IOException {
+        final byte[][] buffers = new byte[RING_SIZE][];
+        final int[] lengths = new int[RING_SIZE];
+        final ArrayBlockingQueue<Integer> freeQueue = new ArrayBlockingQueue<>(RING_SIZE);
+        final ArrayBlockingQueue<Integer> filledQueue = new ArrayBlockingQueue<>(RING_SIZE + 1);// 多1个结束标记，offer 不会失败
+        final Throwable[] readError = new Throwable[1];
+        final Thread[] readerThread = new Thread[1];
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final Object lock = new Object();
+        final CountDownLatch readerLatch = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < RING_SIZE; i++) {
+                buffers[i] = bufferPool.obtain(BUFFER_SIZE);
+                freeQueue.offer(i);
+            }
+        } catch (IOException e) {
+            for (byte[] buffer : buffers) {
+                bufferPool.release(buffer);
+            }
+            throw e;
+        }
+
+        // 读取线程
+        IoExecutors.pipeline().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    synchronized (lock) {
+                        if (stopped.get()) {
+                            return;
+                        }
+                        readerThread[0] = Thread.currentThread();
+                    }
+                    while (!stopped.get()) {
+                        // 中断可能被 inputStream 吞掉，定时检查是否已停止
+                        Integer slot = freeQueue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                        if (slot == null) {
+                            continue;
+                        }
+                        int byteRead = inputStream.read(buffers[slot]);
+                        if (byteRead == -1) {
+                            filledQueue.offer(SLOT_END);
+                            return;
+                        }
+                        if (messageDigest != null) {
+                            messageDigest.update(buffers[slot], 0, byteRead);
+                        }
+                        lengths[slot] = byteRead;
+                        filledQueue.offer(slot);
+                    }
+                } catch (InterruptedException e) {
+                    // 写入线程已结束
+                } catch (Throwable e) {
+                    readError[0] = e;
+                    filledQueue.offer(SLOT_ERROR);
+                } finally {
+                    synchronized (lock) {
+                        readerThread[0] = null;
+                        Thread.interrupted();// 清除中断状态，避免影响线程池的下一个任务
+                    }
+                    readerLatch.countDown();
+                }
+            }
+        });
+
+        boolean finished = false;
+        try {
+            long count = 0;
+            while (true) {
+                if (cancellationSignal != null) {
+                    cancellationSignal.throwIfCanceled();
+                }
+                Integer slot = filledQueue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (slot == null) {
+                    continue;
+                }
+                if (slot == SLOT_END) {
+                    finished = true;
+                    return count;
+                }
+                if (slot == SLOT_ERROR) {
+                    throw readError[0] instanceof IOException ? (IOException) readError[0] : new IOException(readError[0]);
+                }
+                outputStream.write(buffers[slot], 0, lengths[slot]);
+                count += lengths[slot];
+                freeQueue.offer(slot);
+                if (listener != null) {
+                    listener.onProgress(count);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            if (!finished) {
+                synchronized (lock) {
+                    stopped.set(true);
+                    if (readerThread[0] != null) {
+                        readerThread[0].interrupt();
+                    }
+                }
+            }
+            // 等待读取线程结束，之后才能回收缓冲区、关闭 inputStream
+            awaitUninterruptibly(readerLatch);
+            for (byte[] buffer : buffers) {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 是否普通文件(管道、Socket等 size 为0，不能使用 transferTo)
+     *
+     * @param channel channel
+     * @return boolean
+     */
+    private static boolean isRegularFile(FileChannel channel) {
+        try {
+            return channel.size() > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+}
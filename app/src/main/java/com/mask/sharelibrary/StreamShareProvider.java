@@ -0,0 +1,256 @@
+package com.mask.sharelibrary;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分享App私有文件(不复制)
+ * <p>
+ * 1. openFile 直接返回原文件的只读文件描述符，接收方直接读取原文件，不需要先复制到共享存储空间；
+ * 2. query 返回 OpenableColumns(DISPLAY_NAME、SIZE)，getType 返回文件的 MimeType，
+ * 兼容只认 OpenableColumns 的接收方；
+ * 3. 只能访问 files、cache、external_files、external_cache 目录内的文件，Uri中的路径会转换为规范路径后校验。
+ * <p>
+ * Uri格式：content://包名.StreamShareProvider/目录名/相对路径
+ * <p>
+ * 注意：
+ * exported 必须为false，通过 Intent.FLAG_GRANT_READ_URI_PERMISSION 临时授权
+ */
+public class StreamShareProvider extends ContentProvider {
+
+    private static final String ROOT_FILES = "files";
+    private static final String ROOT_CACHE = "cache";
+    private static final String ROOT_EXTERNAL_FILES = "external_files";
+    private static final String ROOT_EXTERNAL_CACHE = "external_cache";
+
+    private static final String[] DEFAULT_PROJECTION = new String[]{
+            OpenableColumns.DISPLAY_NAME,
+            OpenableColumns.SIZE,
+    };
+
+    /**
+     * 目录名 -> 目录(规范路径)
+     */
+    private static volatile Map<String, File> rootMap;
+
+    /**
+     * 获取 Authority
+     *
+     * @param context context
+     * @return String Authority
+     */
+    public static String getAuthority(Context context) {
+        return context.getPackageName() + ".StreamShareProvider";
+    }
+
+    /**
+     * 获取 Uri
+     *
+     * @param context context
+     * @param file    file(App私有目录内的文件)
+     * @return Uri(不在可访问的目录内时返回null)
+     */
+    public static Uri getUri(Context context, File file) {
+        String path;
+        try {
+            path = file.getCanonicalPath();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        // 匹配最长的目录(external_files 可能在 external_cache 的上级)
+        String rootName = null;
+        String rootPath = null;
+        for (Map.Entry<String, File> entry : getRootMap(context).entrySet()) {
+            String dirPath = entry.getValue().getPath();
+            if (isInDir(path, dirPath) && (rootPath == null || dirPath.length() > rootPath.length())) {
+                rootName = entry.getKey();
+                rootPath = dirPath;
+            }
+        }
+        if (rootName == null || path.length() <= rootPath.length()) {
+            return null;
+        }
+
+        Uri.Builder builder = new Uri.Builder()
+                .scheme("content")
+                .authority(getAuthority(context))
+                .appendPath(rootName);
+        for (String segment : path.substring(rootPath.length() + 1).split(File.separator)) {
+            builder.appendPath(segment);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 获取 可访问的目录
+     *
+     * @param context context
+     * @return Map 目录名 -> 目录(规范路径)
+     */
+    private static Map<String, File> getRootMap(Context context) {
+        Map<String, File> map = rootMap;
+        if (map == null) {
+            map = new LinkedHashMap<>();
+            putRoot(map, ROOT_FILES, context.getFilesDir());
+            putRoot(map, ROOT_CACHE, context.getCacheDir());
+            putRoot(map, ROOT_EXTERNAL_FILES, context.getExternalFilesDir(null));
+            putRoot(map, ROOT_EXTERNAL_CACHE, context.getExternalCacheDir());
+            // 外部存储未挂载时不缓存，下次重新获取
+            if (map.containsKey(ROOT_EXTERNAL_FILES)) {
+                rootMap = map;
+            }
+        }
+        return map;
+    }
+
+    private static void putRoot(Map<String, File> map, String name, File dir) {
+        if (dir == null) {
+            return;
+        }
+        try {
+            map.put(name, dir.getCanonicalFile());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static boolean isInDir(String path, String dirPath) {
+        return path.startsWith(dirPath) && (path.length() == dirPath.length() || path.charAt(dirPath.length()) == File.separatorChar);
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public void attachInfo(Context context, ProviderInfo info) {
+        super.attachInfo(context, info);
+
+        // 与 FileProvider 一致
+        if (info.exported) {
+            throw new SecurityException("Provider must not be exported");
+        }
+        if (!info.grantUriPermissions) {
+            throw new SecurityException("Provider must grant uri permissions");
+        }
+    }
+
+    /**
+     * 获取 Uri对应的文件
+     *
+     * @param uri uri
+     * @return File
+     * @throws FileNotFoundException 不在可访问的目录内或不存在
+     */
+    private File getFile(Uri uri) throws FileNotFoundException {
+        List<String> segments = uri.getPathSegments();
+        if (segments.size() < 2) {
+            throw new FileNotFoundException("Invalid uri: " + uri);
+        }
+        File root = getRootMap(getContext()).get(segments.get(0));
+        if (root == null) {
+            throw new FileNotFoundException("Unknown root: " + uri);
+        }
+
+        File file = root;
+        for (int i = 1; i < segments.size(); i++) {
+            file = new File(file, segments.get(i));
+        }
+        try {
+            file = file.getCanonicalFile();
+        } catch (IOException e) {
+            throw new FileNotFoundException("Failed to resolve: " + uri);
+        }
+        // 防止通过 ".." 或符号链接访问其他目录
+        if (!isInDir(file.getPath(), root.getPath()) || !file.isFile()) {
+            throw new FileNotFoundException("File not found: " + uri);
+        }
+        return file;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        File file;
+        try {
+            file = getFile(uri);
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (projection == null) {
+            projection = DEFAULT_PROJECTION;
+        }
+
+        // 只返回支持的列(与 FileProvider 一致，不支持的列忽略)
+        String[] columns = new String[projection.length];
+        Object[] values = new Object[projection.length];
+        int count = 0;
+        for (String column : projection) {
+            if (OpenableColumns.DISPLAY_NAME.equals(column)) {
+                columns[count] = OpenableColumns.DISPLAY_NAME;
+                values[count++] = file.getName();
+            } else if (OpenableColumns.SIZE.equals(column)) {
+                columns[count] = OpenableColumns.SIZE;
+                values[count++] = file.length();
+            }
+        }
+        String[] resultColumns = new String[count];
+        Object[] resultValues = new Object[count];
+        System.arraycopy(columns, 0, resultColumns, 0, count);
+        System.arraycopy(values, 0, resultValues, 0, count);
+
+        MatrixCursor cursor = new MatrixCursor(resultColumns, 1);
+        cursor.addRow(resultValues);
+        return cursor;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        try {
+            return FileUtils.getMimeType(getFile(uri));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+        if (!"r".equals(mode)) {
+            throw new SecurityException("Read only: " + uri);
+        }
+        return ParcelFileDescriptor.open(getFile(uri), ParcelFileDescriptor.MODE_READ_ONLY);
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("No external inserts");
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("No external deletes");
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("No external updates");
+    }
+
+}
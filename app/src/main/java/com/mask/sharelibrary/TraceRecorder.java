@@ -0,0 +1,262 @@
+package com.mask.sharelibrary;
+
+import android.os.Process;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * 耗时追踪(Chrome Trace Event 格式)
+ * <p>
+ * 1. beginSection/endSection 记录同一线程内嵌套的耗时区间，counter 记录数值变化；
+ * 2. 事件记录在内存中的固定大小数组，写入时不加锁(通过原子自增获取位置)，满了之后丢弃新的事件；
+ * 3. write() 输出为 JSON，可以直接用 Perfetto(https://ui.perfetto.dev) 或 chrome://tracing 打开。
+ * <p>
+ * 默认不记录，可以在运行时调用 setEnabled() 开启，未开启时每个调用只读取一个 volatile 字段
+ */
+public final class TraceRecorder {
+
+    /**
+     * 最大事件数
+     */
+    private static final int CAPACITY = 32 * 1024;
+
+    private static final char PHASE_BEGIN = 'B';
+    private static final char PHASE_END = 'E';
+    private static final char PHASE_COUNTER = 'C';
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final AtomicInteger size = new AtomicInteger();
+    private static final AtomicIntegerArray committed = new AtomicIntegerArray(CAPACITY);
+
+    private static final long[] times = new long[CAPACITY];
+    private static final int[] tids = new int[CAPACITY];
+    private static final char[] phases = new char[CAPACITY];
+    private static final String[] names = new String[CAPACITY];
+    private static final Object[] details = new Object[CAPACITY];
+    private static final long[] values = new long[CAPACITY];
+
+    /**
+     * 线程id -> 线程名
+     */
+    private static final Map<Integer, String> threadNameMap = new ConcurrentHashMap<>();
+
+    private static final ThreadLocal<Integer> threadId = new ThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            int tid = Process.myTid();
+            threadNameMap.put(tid, Thread.currentThread().getName());
+            return tid;
+        }
+    };
+
+    private static volatile boolean enabled;
+
+    private TraceRecorder() {
+    }
+
+    /**
+     * 设置 是否记录
+     *
+     * @param enabled enabled
+     */
+    public static void setEnabled(boolean enabled) {
+        TraceRecorder.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 开始区间(必须在同一线程中调用 endSection)
+     *
+     * @param name 名称(使用常量，避免未开启时拼接字符串)
+     */
+    public static void beginSection(String name) {
+        if (enabled) {
+            add(PHASE_BEGIN, name, null, 0);
+        }
+    }
+
+    /**
+     * 开始区间(必须在同一线程中调用 endSection)
+     *
+     * @param name   名称(使用常量，避免未开启时拼接字符串)
+     * @param detail 详细信息(例如：File，输出时才调用 toString)
+     */
+    public static void beginSection(String name, Object detail) {
+        if (enabled) {
+            add(PHASE_BEGIN, name, detail, 0);
+        }
+    }
+
+    /**
+     * 结束区间
+     * <p>
+     * 开始时未开启也会记录，查看时会被忽略
+     */
+    public static void endSection() {
+        if (enabled) {
+            add(PHASE_END, null, null, 0);
+        }
+    }
+
+    /**
+     * 记录数值
+     *
+     * @param name  名称
+     * @param value value
+     */
+    public static void counter(String name, long value) {
+        if (enabled) {
+            add(PHASE_COUNTER, name, null, value);
+        }
+    }
+
+    private static void add(char phase, String name, Object detail, long value) {
+        int index = size.getAndIncrement();
+        if (index >= CAPACITY) {
+            size.set(CAPACITY);// 防止溢出
+            return;
+        }
+        times[index] = System.nanoTime();
+        tids[index] = threadId.get();
+        phases[index] = phase;
+        names[index] = name;
+        details[index] = detail;
+        values[index] = value;
+        committed.set(index, 1);
+    }
+
+    /**
+     * 获取 已记录的事件数
+     *
+     * @return int
+     */
+    public static int getCount() {
+        return Math.min(size.get(), CAPACITY);
+    }
+
+    /**
+     * 清空
+     * <p>
+     * 注意：
+     * 不要在记录过程中调用，正在写入的事件可能会丢失
+     */
+    public static void clear() {
+        int count = getCount();
+        for (int i = 0; i < count; i++) {
+            committed.set(i, 0);
+            names[i] = null;
+            details[i] = null;
+        }
+        size.set(0);
+    }
+
+    /**
+     * 输出到文件(JSON)
+     *
+     * @param file file
+     * @return boolean 是否成功
+     */
+    public static boolean write(File file) {
+        File parentFile = file.getParentFile();
+        if (parentFile != null && !parentFile.isDirectory() && !parentFile.mkdirs()) {
+            return false;
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF_8))) {
+            write(writer);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * 输出(JSON)
+     *
+     * @param writer writer
+     * @throws IOException IOException
+     */
+    public static void write(Writer writer) throws IOException {
+        int pid = Process.myPid();
+        int count = getCount();
+        long startTime = Long.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            if (committed.get(i) != 0) {
+                startTime = Math.min(startTime, times[i]);
+            }
+        }
+
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        for (Map.Entry<Integer, String> entry : threadNameMap.entrySet()) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writer.write("{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":" + pid + ",\"tid\":" + entry.getKey() + ",\"args\":{\"name\":");
+            writeString(writer, entry.getValue());
+            writer.write("}}");
+        }
+        for (int i = 0; i < count; i++) {
+            if (committed.get(i) == 0) {
+                continue;
+            }
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            long time = times[i] - startTime;
+            writer.write("\n{\"ph\":\"" + phases[i] + "\",\"pid\":" + pid + ",\"tid\":" + tids[i]
+                    + ",\"ts\":" + time / 1000 + "." + (time % 1000 + 1000 + "").substring(1));
+            if (names[i] != null) {
+                writer.write(",\"name\":");
+                writeString(writer, names[i]);
+            }
+            if (phases[i] == PHASE_COUNTER) {
+                writer.write(",\"args\":{\"value\":" + values[i] + "}");
+            } else if (details[i] != null) {
+                writer.write(",\"args\":{\"detail\":");
+                writeString(writer, String.valueOf(details[i]));
+                writer.write('}');
+            }
+            writer.write('}');
+        }
+        writer.write("]}");
+        writer.flush();
+    }
+
+    /**
+     * 输出 JSON字符串(转义)
+     */
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+}
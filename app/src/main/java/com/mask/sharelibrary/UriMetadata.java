@@ -0,0 +1,375 @@
+package com.mask.sharelibrary;
+
+import android.content.ClipData;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.MediaStore;
+import android.provider.OpenableColumns;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uri信息(name、size、mimeType、path、dateModified、id)
+ * <p>
+ * 一次查询获取所有信息，代替分别调用 getPath/getName/getMimeType(每个都是一次跨进程调用)：
+ * 1. DocumentsContract 的Uri：查询 Document 的列；
+ * 2. MediaStore 的Uri：查询 MediaColumns 的列，多个Uri按集合分组，使用 _ID IN (...) 批量查询；
+ * 3. 其他 ContentProvider：查询 OpenableColumns 的列，mimeType 需要额外调用 getType；
+ * 4. file 的Uri：直接读取文件信息，不查询。
+ */
+public class UriMetadata {
+
+    private static final String[] DOCUMENT_PROJECTION = new String[]{
+            DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+            DocumentsContract.Document.COLUMN_SIZE,
+            DocumentsContract.Document.COLUMN_MIME_TYPE,
+            DocumentsContract.Document.COLUMN_LAST_MODIFIED,
+    };
+
+    private static final String[] MEDIA_PROJECTION = new String[]{
+            MediaStore.MediaColumns._ID,
+            MediaStore.MediaColumns.DISPLAY_NAME,
+            MediaStore.MediaColumns.SIZE,
+            MediaStore.MediaColumns.MIME_TYPE,
+            MediaStore.MediaColumns.DATA,
+            MediaStore.MediaColumns.DATE_MODIFIED,
+    };
+
+    private static final String[] OPENABLE_PROJECTION = new String[]{
+            OpenableColumns.DISPLAY_NAME,
+            OpenableColumns.SIZE,
+    };
+
+    /**
+     * 读取的列(三种 projection 的并集，按位置读取)
+     */
+    private static final String[] READ_COLUMNS = new String[]{
+            MediaStore.MediaColumns._ID,
+            OpenableColumns.DISPLAY_NAME,// 与 MediaColumns/Document 的列名相同
+            OpenableColumns.SIZE,
+            MediaStore.MediaColumns.MIME_TYPE,
+            MediaStore.MediaColumns.DATA,
+            MediaStore.MediaColumns.DATE_MODIFIED,// 秒
+            DocumentsContract.Document.COLUMN_LAST_MODIFIED,// 毫秒
+    };
+    private static final int COLUMN_ID = 0;
+    private static final int COLUMN_NAME = 1;
+    private static final int COLUMN_SIZE = 2;
+    private static final int COLUMN_MIME_TYPE = 3;
+    private static final int COLUMN_PATH = 4;
+    private static final int COLUMN_DATE_MODIFIED = 5;
+    private static final int COLUMN_LAST_MODIFIED = 6;
+
+    private final Uri uri;
+    private long id = -1;
+    private String name;
+    private long size = -1;
+    private String mimeType;
+    private String path;
+    private long dateModified = -1;
+
+    private UriMetadata(Uri uri) {
+        this.uri = uri;
+    }
+
+    /**
+     * 获取 Uri信息
+     *
+     * @param context context
+     * @param uri     uri
+     * @return UriMetadata(查询失败时只有部分信息)
+     */
+    public static UriMetadata resolve(Context context, Uri uri) {
+        if (uri == null) {
+            return null;
+        }
+        List<Uri> uriList = new ArrayList<>(1);
+        uriList.add(uri);
+        return resolve(context, uriList).get(0);
+    }
+
+    /**
+     * 获取 Uri信息(批量)
+     *
+     * @param context  context
+     * @param clipData clipData(例如：多选返回的Intent.getClipData())
+     * @return List<UriMetadata>(与clipData中的Uri顺序一致)
+     */
+    public static List<UriMetadata> resolve(Context context, ClipData clipData) {
+        List<Uri> uriList = new ArrayList<>(clipData.getItemCount());
+        for (int i = 0; i < clipData.getItemCount(); i++) {
+            Uri uri = clipData.getItemAt(i).getUri();
+            if (uri != null) {
+                uriList.add(uri);
+            }
+        }
+        return resolve(context, uriList);
+    }
+
+    /**
+     * 获取 Uri信息(批量)
+     * <p>
+     * 注意：
+     * 耗时操作，尽量不要在主线程调用
+     *
+     * @param context context
+     * @param uriList uriList
+     * @return List<UriMetadata>(与uriList顺序一致)
+     */
+    public static List<UriMetadata> resolve(Context context, List<Uri> uriList) {
+        ContentResolver contentResolver = context.getContentResolver();
+        List<UriMetadata> metadataList = new ArrayList<>(uriList.size());
+        Map<Uri, List<UriMetadata>> mediaGroupMap = new LinkedHashMap<>();// 集合 -> 该集合的Uri
+
+        for (Uri uri : uriList) {
+            UriMetadata metadata = new UriMetadata(uri);
+            metadataList.add(metadata);
+
+            if (ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+                metadata.readFile();
+            } else if (DocumentsContract.isDocumentUri(context, uri)) {
+                metadata.query(contentResolver, DOCUMENT_PROJECTION);
+            } else if (MediaStore.AUTHORITY.equals(uri.getAuthority()) && parseId(uri) >= 0) {
+                Uri collectionUri = getCollectionUri(uri);
+                List<UriMetadata> groupList = mediaGroupMap.get(collectionUri);
+                if (groupList == null) {
+                    groupList = new ArrayList<>();
+                    mediaGroupMap.put(collectionUri, groupList);
+                }
+                metadata.id = parseId(uri);
+                groupList.add(metadata);
+            } else {
+                metadata.query(contentResolver, OPENABLE_PROJECTION);
+            }
+        }
+
+        MediaStoreCache cache = MediaStoreCache.getInstance(context);
+        long generation = cache.getGeneration();
+        for (Map.Entry<Uri, List<UriMetadata>> entry : mediaGroupMap.entrySet()) {
+            queryMedia(contentResolver, entry.getKey(), entry.getValue());
+        }
+        for (List<UriMetadata> groupList : mediaGroupMap.values()) {
+            for (UriMetadata metadata : groupList) {
+                if (metadata.path != null) {
+                    cache.putPath(generation, metadata.uri, metadata.path);
+                }
+            }
+        }
+
+        // 查询结果中没有mimeType时，再调用getType
+        for (UriMetadata metadata : metadataList) {
+            if (metadata.mimeType == null && !ContentResolver.SCHEME_FILE.equals(metadata.uri.getScheme())) {
+                try {
+                    metadata.mimeType = contentResolver.getType(metadata.uri);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return metadataList;
+    }
+
+    /**
+     * 批量查询同一集合的MediaStore Uri(_ID IN (...)，按 QUERY_CHUNK_SIZE 分批)
+     *
+     * @param contentResolver contentResolver
+     * @param collectionUri   collectionUri
+     * @param groupList       groupList
+     */
+    private static void queryMedia(ContentResolver contentResolver, Uri collectionUri, List<UriMetadata> groupList) {
+        Map<Long, List<UriMetadata>> idMap = new HashMap<>();
+        for (UriMetadata metadata : groupList) {
+            List<UriMetadata> idList = idMap.get(metadata.id);
+            if (idList == null) {
+                idList = new ArrayList<>(1);
+                idMap.put(metadata.id, idList);
+            }
+            idList.add(metadata);
+        }
+
+        List<Long> ids = new ArrayList<>(idMap.keySet());
+        for (int start = 0; start < ids.size(); start += FileUtils.QUERY_CHUNK_SIZE) {
+            int end = Math.min(start + FileUtils.QUERY_CHUNK_SIZE, ids.size());
+            String selection = MediaStore.MediaColumns._ID + " IN (" + FileUtils.getPlaceholders(end - start) + ")";
+            String[] selectionArgs = new String[end - start];
+            for (int i = start; i < end; i++) {
+                selectionArgs[i - start] = String.valueOf(ids.get(i));
+            }
+            try (CursorReader reader = CursorReader.wrap(contentResolver.query(collectionUri, MEDIA_PROJECTION, selection, selectionArgs, null), READ_COLUMNS)) {
+                if (reader == null) {
+                    continue;
+                }
+                while (reader.moveToNext()) {
+                    List<UriMetadata> idList = idMap.get(reader.getLong(COLUMN_ID));
+                    if (idList == null) {
+                        continue;
+                    }
+                    for (UriMetadata metadata : idList) {
+                        metadata.read(reader);
+                    }
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 获取 集合Uri(去掉最后的id，例如：content://media/external/images/media/1 -> content://media/external/images/media)
+     *
+     * @param uri uri
+     * @return Uri
+     */
+    static Uri getCollectionUri(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        Uri.Builder builder = new Uri.Builder()
+                .scheme(uri.getScheme())
+                .authority(uri.getAuthority());
+        for (int i = 0; i < segments.size() - 1; i++) {
+            builder.appendPath(segments.get(i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 获取 Uri末尾的id
+     *
+     * @param uri uri
+     * @return long(不是数字时返回-1)
+     */
+    static long parseId(Uri uri) {
+        String last = uri.getLastPathSegment();
+        if (last == null || last.isEmpty()) {
+            return -1;
+        }
+        for (int i = 0; i < last.length(); i++) {
+            if (last.charAt(i) < '0' || last.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        try {
+            return Long.parseLong(last);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void readFile() {
+        String filePath = uri.getPath();
+        if (filePath == null) {
+            return;
+        }
+        File file = new File(filePath);
+        path = file.getAbsolutePath();
+        name = file.getName();
+        if (file.isFile()) {
+            size = file.length();
+            dateModified = file.lastModified();
+            mimeType = FileUtils.getMimeType(file);
+        } else {
+            mimeType = FileUtils.getMimeType(name);
+        }
+    }
+
+    private void query(ContentResolver contentResolver, String[] projection) {
+        try (CursorReader reader = CursorReader.wrap(contentResolver.query(uri, projection, null, null, null), READ_COLUMNS)) {
+            if (reader != null && reader.moveToNext()) {
+                read(reader);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 读取当前行(列不存在时忽略)
+     *
+     * @param reader reader
+     */
+    private void read(CursorReader reader) {
+        id = reader.getLong(COLUMN_ID, id);
+        if (reader.hasColumn(COLUMN_NAME)) {
+            name = reader.getString(COLUMN_NAME);
+        }
+        size = reader.getLong(COLUMN_SIZE, size);
+        if (reader.hasColumn(COLUMN_MIME_TYPE)) {
+            mimeType = reader.getString(COLUMN_MIME_TYPE);
+        }
+        if (reader.hasColumn(COLUMN_PATH)) {
+            path = reader.getString(COLUMN_PATH);
+        }
+        if (!reader.isNull(COLUMN_DATE_MODIFIED)) {
+            dateModified = reader.getLong(COLUMN_DATE_MODIFIED) * 1000;
+        }
+        dateModified = reader.getLong(COLUMN_LAST_MODIFIED, dateModified);
+    }
+
+    public Uri getUri() {
+        return uri;
+    }
+
+    /**
+     * 获取 id(MediaStore的_ID)
+     *
+     * @return long(不是MediaStore的Uri时为-1)
+     */
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取 文件大小
+     *
+     * @return long(未知时为-1)
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * 获取 Path
+     *
+     * @return String(只有MediaStore和file的Uri才有)
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * 获取 修改时间(毫秒)
+     *
+     * @return long(未知时为-1)
+     */
+    public long getDateModified() {
+        return dateModified;
+    }
+
+    @Override
+    public String toString() {
+        return "UriMetadata{" +
+                "uri=" + uri +
+                ", id=" + id +
+                ", name='" + name + '\'' +
+                ", size=" + size +
+                ", mimeType='" + mimeType + '\'' +
+                ", path='" + path + '\'' +
+                ", dateModified=" + dateModified +
+                '}';
+    }
+
+}
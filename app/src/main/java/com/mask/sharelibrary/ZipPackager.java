@@ -0,0 +1,321 @@
+package com.mask.sharelibrary;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.provider.MediaStore;
+import android.text.TextUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 打包分享(多个文件打包为一个ZIP，只分享一个Uri)
+ * <p>
+ * 1. 逐个读取文件直接写入目标Uri(MediaStore 或 cache目录)，不生成临时文件，每个文件只读取一次；
+ * 2. 已压缩的文件(图片、视频、音频、压缩包)不再压缩，其他文件(文档等)使用 DEFLATE 压缩；
+ * 3. 每次分享都会生成新的ZIP，通过 cleanExpired 删除过期的ZIP(MediaStore 和 cache目录)。
+ * <p>
+ * 注意：
+ * ZipOutputStream 的 STORED 需要写入前知道 CRC32，必须先完整读取一遍文件，
+ * 所以不压缩的文件使用 DEFLATE 的 NO_COMPRESSION 级别(直接存储数据块，每 64KB 多 5 字节)，保证只读取一次
+ */
+public class ZipPackager {
+
+    public static final String MIME_TYPE_ZIP = "application/zip";
+
+    /**
+     * 输出缓冲区大小(DeflaterOutputStream 每次只写 512 字节，直接写入 Uri 会产生大量小的写操作)
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * cache目录下的打包目录
+     */
+    private static final String CACHE_DIR_NAME = "share";
+
+    /**
+     * ZIP过期时间(接收方可能还在读取，不能分享后立即删除)
+     */
+    private static final long EXPIRE_MILLIS = 24 * 60 * 60 * 1000;
+
+    private ZipPackager() {
+    }
+
+    /**
+     * 是否已压缩的格式(再压缩基本没有效果)
+     *
+     * @param mimeType mimeType(可为null)
+     * @return boolean
+     */
+    public static boolean isCompressed(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        return mimeType.startsWith("image/")
+                || mimeType.startsWith("video/")
+                || mimeType.startsWith("audio/")
+                || MIME_TYPE_ZIP.equals(mimeType)
+                || "application/gzip".equals(mimeType)
+                || "application/x-7z-compressed".equals(mimeType)
+                || "application/x-rar-compressed".equals(mimeType)
+                || "application/vnd.android.package-archive".equals(mimeType);
+    }
+
+    /**
+     * 打包到外部(MediaStore)
+     * <p>
+     * 取消时会删除已插入的Uri，并抛出 OperationCanceledException
+     * <p>
+     * 注意：
+     * 耗时操作，不要在主线程调用
+     *
+     * @param context            context
+     * @param dirName            目录名(例如："/Documents/WeChat"中的"WeChat")
+     * @param zipName            ZIP文件名(例如："share.zip")
+     * @param fileList           fileList
+     * @param cancellationSignal 取消信号(可为null)
+     * @param listener           进度回调(可为null，已读取的文件字节数)
+     * @return Uri(失败返回null)
+     */
+    public static Uri packageToExternal(Context context, String dirName, String zipName, List<File> fileList,
+                                        CancellationSignal cancellationSignal, StreamCopier.ProgressListener listener) {
+        ContentResolver contentResolver = context.getContentResolver();
+        ContentValues values = FileUtils.getInsertValues(zipName, MIME_TYPE_ZIP, dirName);
+        Uri uri = null;
+        try {
+            uri = contentResolver.insert(FileUtils.getContentUri(MIME_TYPE_ZIP), values);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        if (uri == null) {
+            return null;
+        }
+
+        boolean success = false;
+        try (OutputStream outputStream = contentResolver.openOutputStream(uri)) {
+            if (outputStream == null) {
+                throw new FileNotFoundException("openOutputStream failed: " + uri);
+            }
+            writeZip(fileList, outputStream, cancellationSignal, listener);
+            success = true;
+        } catch (OperationCanceledException e) {
+            FileUtils.delete(context, uri);
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        if (!success) {
+            FileUtils.delete(context, uri);
+            return null;
+        }
+
+        // 更新文件的处理状态(失败时仍是待处理状态，其他App无法读取，删除)
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            values.clear();
+            values.put(MediaStore.MediaColumns.IS_PENDING, 0);
+            try {
+                if (contentResolver.update(uri, values, null, null) <= 0) {
+                    FileUtils.delete(context, uri);
+                    return null;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                FileUtils.delete(context, uri);
+                return null;
+            }
+        }
+        return uri;
+    }
+
+    /**
+     * 打包到 cache目录(返回 StreamShareProvider 的Uri)
+     * <p>
+     * 注意：
+     * 耗时操作，不要在主线程调用
+     *
+     * @param context            context
+     * @param zipName            ZIP文件名(例如："share.zip")
+     * @param fileList           fileList
+     * @param cancellationSignal 取消信号(可为null)
+     * @param listener           进度回调(可为null，已读取的文件字节数)
+     * @return Uri(失败返回null)
+     */
+    public static Uri packageToCache(Context context, String zipName, List<File> fileList,
+                                     CancellationSignal cancellationSignal, StreamCopier.ProgressListener listener) {
+        File dir = new File(context.getCacheDir(), CACHE_DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return null;
+        }
+        File zipFile = new File(dir, zipName);
+
+        boolean success = false;
+        try (OutputStream outputStream = new FileOutputStream(zipFile)) {
+            writeZip(fileList, outputStream, cancellationSignal, listener);
+            success = true;
+        } catch (OperationCanceledException e) {
+            zipFile.delete();
+            throw e;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        if (!success) {
+            zipFile.delete();
+            return null;
+        }
+        return FileUtils.getStreamUri(context, zipFile);
+    }
+
+    /**
+     * 删除过期的ZIP(超过 EXPIRE_MILLIS)
+     * <p>
+     * 1. MediaStore：dirName 目录下、文件名以 namePrefix 开头的ZIP(Android 10 及以上只能删除自己创建的)；
+     * 2. cache目录：packageToCache 生成的所有ZIP。
+     * <p>
+     * 注意：
+     * 耗时操作，不要在主线程调用
+     *
+     * @param context    context
+     * @param dirName    目录名(与 packageToExternal 一致)
+     * @param namePrefix ZIP文件名前缀(例如："share_"，只删除匹配的文件，避免删除用户的其他ZIP)
+     * @return int 删除的数量
+     */
+    public static int cleanExpired(Context context, String dirName, String namePrefix) {
+        long expireTime = System.currentTimeMillis() - EXPIRE_MILLIS;
+        int count = 0;
+
+        // cache目录
+        File[] files = new File(context.getCacheDir(), CACHE_DIR_NAME).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && file.lastModified() < expireTime && file.delete()) {
+                    count++;
+                }
+            }
+        }
+
+        // MediaStore(文件名前缀和目录在查询结果中过滤)
+        String relativePath = FileUtils.getRelativePath(MIME_TYPE_ZIP, dirName);
+        boolean checkRelativePath = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+        String[] projection = new String[]{
+                MediaStore.MediaColumns._ID,
+                MediaStore.MediaColumns.DISPLAY_NAME,
+                checkRelativePath ? MediaStore.MediaColumns.RELATIVE_PATH : MediaStore.MediaColumns.DATA,
+        };
+        String selection = MediaStore.MediaColumns.MIME_TYPE + "=? AND " + MediaStore.MediaColumns.DATE_ADDED + "<?";
+        String[] selectionArgs = new String[]{MIME_TYPE_ZIP, String.valueOf(expireTime / 1000)};
+        Uri contentUri = FileUtils.getContentUri(MIME_TYPE_ZIP);
+        List<Uri> uriList = new ArrayList<>();
+        try (CursorReader reader = CursorReader.wrap(context.getContentResolver().query(contentUri, projection, selection, selectionArgs, null), projection)) {
+            while (reader != null && reader.moveToNext()) {
+                String name = reader.getString(1);
+                String path = reader.getString(2);
+                if (name == null || !name.startsWith(namePrefix) || path == null) {
+                    continue;
+                }
+                // RELATIVE_PATH 末尾带有"/"，DATA 为完整路径
+                boolean inDir = checkRelativePath
+                        ? path.equals(relativePath) || path.equals(relativePath + File.separatorChar)
+                        : path.endsWith(File.separatorChar + relativePath + File.separatorChar + name);
+                if (inDir) {
+                    uriList.add(ContentUris.withAppendedId(contentUri, reader.getLong(0)));
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        for (DeleteResult result : FileUtils.delete(context, uriList)) {
+            if (result.isDeleted()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 写入ZIP(不关闭 outputStream)
+     * <p>
+     * 文件名重复时添加序号，不存在的文件跳过
+     *
+     * @param fileList           fileList
+     * @param outputStream       outputStream
+     * @param cancellationSignal 取消信号(可为null)
+     * @param listener           进度回调(可为null，已读取的文件字节数)
+     * @return long 读取的文件总字节数
+     * @throws IOException IOException
+     */
+    public static long writeZip(List<File> fileList, OutputStream outputStream,
+                                CancellationSignal cancellationSignal, final StreamCopier.ProgressListener listener) throws IOException {
+        BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream, OUTPUT_BUFFER_SIZE);
+        ZipOutputStream zipOutputStream = new ZipOutputStream(bufferedOutputStream);
+        Set<String> nameSet = new HashSet<>();
+        long total = 0;
+        for (File file : fileList) {
+            if (file == null || !file.isFile()) {
+                continue;
+            }
+            if (cancellationSignal != null) {
+                cancellationSignal.throwIfCanceled();
+            }
+
+            ZipEntry entry = new ZipEntry(getUniqueName(nameSet, file.getName()));
+            entry.setTime(file.lastModified());
+            zipOutputStream.setLevel(isCompressed(FileUtils.getMimeType(file)) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+            zipOutputStream.putNextEntry(entry);
+
+            final long offset = total;
+            try (InputStream inputStream = new FileInputStream(file)) {
+                total += StreamCopier.copy(inputStream, zipOutputStream, cancellationSignal, listener == null ? null : new StreamCopier.ProgressListener() {
+                    @Override
+                    public void onProgress(long bytes) {
+                        listener.onProgress(offset + bytes);
+                    }
+                });
+            }
+            zipOutputStream.closeEntry();
+        }
+        zipOutputStream.finish();
+        bufferedOutputStream.flush();
+        return total;
+    }
+
+    /**
+     * 获取 不重复的名称(重复时添加序号，例如："a (1).jpg")
+     *
+     * @param nameSet 已使用的名称
+     * @param name    name
+     * @return String
+     */
+    private static String getUniqueName(Set<String> nameSet, String name) {
+        if (TextUtils.isEmpty(name)) {
+            name = "file";
+        }
+        String uniqueName = name;
+        int index = name.lastIndexOf('.');
+        String baseName = index > 0 ? name.substring(0, index) : name;
+        String extension = index > 0 ? name.substring(index) : "";
+        for (int i = 1; !nameSet.add(uniqueName); i++) {
+            uniqueName = baseName + " (" + i + ")" + extension;
+        }
+        return uniqueName;
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.mask.sharelibrary.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 获取多个文件的 MediaStore Uri：逐个查询(getContentUri) 与 FileUtils.getContentUris 的分批 IN 查询比较
+ * <p>
+ * 1. 使用 SQLite 内存数据库模拟 MediaStore 的 files 表(_data 有索引)，共 ROW_COUNT 行；
+ * 2. roundTripMicros 模拟每次 ContentResolver.query 的跨进程开销(Binder调用 + CursorWindow)，
+ * 真机上通常为 0.2 ~ 1ms，为0时只比较 SQLite 本身的开销。
+ * <p>
+ * 分批大小与 FileUtils.QUERY_CHUNK_SIZE 一致
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ContentUriQueryBenchmark {
+
+    private static final int ROW_COUNT = 20000;
+
+    private static final int QUERY_CHUNK_SIZE = 500;
+
+    @Param({"10", "100", "1000"})
+    public int fileCount;
+
+    @Param({"0", "300"})
+    public int roundTripMicros;
+
+    private Connection connection;
+    private String[] paths;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE files (_id INTEGER PRIMARY KEY, _data TEXT)");
+            statement.execute("CREATE INDEX path_index ON files (_data)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO files (_data) VALUES (?)")) {
+            for (int i = 0; i < ROW_COUNT; i++) {
+                statement.setString(1, getPath(i));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        // 要查询的文件均匀分布在表中
+        paths = new String[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            paths[i] = getPath((int) ((long) i * ROW_COUNT / fileCount));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private static String getPath(int index) {
+        return "/storage/emulated/0/Pictures/WeChat/IMG_" + (20200000 + index) + ".jpg";
+    }
+
+    @Benchmark
+    public void perFile(Blackhole blackhole) throws SQLException {
+        Map<String, Long> uriMap = new HashMap<>();
+        for (String path : paths) {
+            roundTrip();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT _id FROM files WHERE _data=?")) {
+                statement.setString(1, path);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        uriMap.put(path, resultSet.getLong(1));
+                    }
+                }
+            }
+        }
+        blackhole.consume(uriMap);
+    }
+
+    @Benchmark
+    public void batched(Blackhole blackhole) throws SQLException {
+        Map<String, Long> uriMap = new HashMap<>();
+        for (int start = 0; start < paths.length; start += QUERY_CHUNK_SIZE) {
+            int end = Math.min(start + QUERY_CHUNK_SIZE, paths.length);
+            StringBuilder builder = new StringBuilder("SELECT _id, _data FROM files WHERE _data IN (");
+            for (int i = start; i < end; i++) {
+                builder.append(i > start ? ",?" : "?");
+            }
+            builder.append(')');
+
+            roundTrip();
+            try (PreparedStatement statement = connection.prepareStatement(builder.toString())) {
+                for (int i = start; i < end; i++) {
+                    statement.setString(i - start + 1, paths[i]);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        uriMap.put(resultSet.getString(2), resultSet.getLong(1));
+                    }
+                }
+            }
+        }
+        blackhole.consume(uriMap);
+    }
+
+    /**
+     * 模拟跨进程开销(忙等，避免 sleep 的调度误差)
+     */
+    private void roundTrip() {
+        if (roundTripMicros <= 0) {
+            return;
+        }
+        long endTime = System.nanoTime() + roundTripMicros * 1000L;
+        while (System.nanoTime() < endTime) {
+            // 忙等
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.mask.sharelibrary.benchmark;
+
+import com.mask.sharelibrary.StreamCopier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 复制吞吐量：不同文件大小下，旧的固定缓冲区循环(不同缓冲区大小) 与 StreamCopier 的缓冲区池/FileChannel 比较
+ * <p>
+ * bufferSize 只对 legacyCopy 有效，StreamCopier 自适应调整缓冲区大小(MB/s 见 AdaptiveCopyBenchmark)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CopyBenchmark {
+
+    @Param({"65536", "1048576", "16777216"})
+    public int fileSize;
+
+    @Param({"8192", "65536"})
+    public int bufferSize;
+
+    private File inFile;
+    private File outFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        inFile = File.createTempFile("copy_in", ".bin");
+        outFile = File.createTempFile("copy_out", ".bin");
+        byte[] data = new byte[fileSize];
+        new Random(fileSize).nextBytes(data);
+        try (OutputStream outputStream = new FileOutputStream(inFile)) {
+            outputStream.write(data);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        inFile.delete();
+        outFile.delete();
+    }
+
+    @Benchmark
+    public long legacyCopy() throws IOException {
+        try (InputStream inputStream = new FileInputStream(inFile);
+             OutputStream outputStream = new FileOutputStream(outFile)) {
+            return Legacy.copy(inputStream, outputStream, bufferSize);
+        }
+    }
+
+    @Benchmark
+    public long streamCopierBuffered() throws IOException {
+        try (InputStream inputStream = new FileInputStream(inFile);
+             OutputStream outputStream = new FileOutputStream(outFile)) {
+            return StreamCopier.copyBuffered(inputStream, outputStream);
+        }
+    }
+
+    @Benchmark
+    public long streamCopierChannel() throws IOException {
+        try (InputStream inputStream = new FileInputStream(inFile);
+             OutputStream outputStream = new FileOutputStream(outFile)) {
+            return StreamCopier.copy(inputStream, outputStream);
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.mask.sharelibrary.benchmark;
+
+import java.util.Random;
+
+/**
+ * 基准测试数据
+ */
+final class Corpus {
+
+    /**
+     * 常见扩展名(与 MimeTypes 中的一致，用于 Legacy 的 HashMap)
+     */
+    static final String[][] MIME_TYPES = {
+            {"jpg", "image/jpeg"}, {"jpeg", "image/jpeg"}, {"png", "image/png"}, {"gif", "image/gif"},
+            {"webp", "image/webp"}, {"heic", "image/heic"}, {"mp4", "video/mp4"}, {"3gp", "video/3gpp"},
+            {"mkv", "video/x-matroska"}, {"mov", "video/quicktime"}, {"mp3", "audio/mpeg"}, {"m4a", "audio/mp4"},
+            {"aac", "audio/aac"}, {"wav", "audio/x-wav"}, {"ogg", "audio/ogg"}, {"flac", "audio/flac"},
+            {"txt", "text/plain"}, {"html", "text/html"}, {"json", "application/json"}, {"pdf", "application/pdf"},
+            {"doc", "application/msword"}, {"xls", "application/vnd.ms-excel"}, {"zip", "application/zip"},
+            {"apk", "application/vnd.android.package-archive"},
+    };
+
+    private static final String[] OTHER_EXTENSIONS = {"JPG", "PNG", "Mp4", "unknown", "bak", "tmp", ""};
+
+    private Corpus() {
+    }
+
+    /**
+     * 生成文件名(固定种子，结果可重复)：大部分是常见扩展名，部分大写、未知扩展名或没有扩展名
+     *
+     * @param count count
+     * @return String[]
+     */
+    static String[] newNames(int count) {
+        Random random = new Random(20200714);
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            String baseName = "IMG_2020" + (100000 + random.nextInt(900000));
+            String extension;
+            if (random.nextInt(10) < 8) {
+                extension = MIME_TYPES[random.nextInt(MIME_TYPES.length)][0];
+            } else {
+                extension = OTHER_EXTENSIONS[random.nextInt(OTHER_EXTENSIONS.length)];
+            }
+            names[i] = extension.isEmpty() ? baseName : baseName + "." + extension;
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.mask.sharelibrary.benchmark;
+
+import android.text.TextUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 优化前的实现(作为对比基准)
+ */
+final class Legacy {
+
+    private static final String customTagPrefix = "x_log";
+
+    /**
+     * MimeTypeMap 内部也是 HashMap(扩展名需要先截取，且区分大小写)
+     */
+    private static final Map<String, String> mimeTypeMap = new HashMap<>();
+
+    static {
+        for (String[] entry : Corpus.MIME_TYPES) {
+            mimeTypeMap.put(entry[0], entry[1]);
+        }
+    }
+
+    private Legacy() {
+    }
+
+    /**
+     * FileUtils.copy(固定8KB缓冲区)，bufferSize 用于比较不同缓冲区大小
+     */
+    static long copy(InputStream inputStream, OutputStream outputStream, int bufferSize) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        long total = 0;
+        int byteRead;
+        while ((byteRead = inputStream.read(buffer)) > 0) {
+            outputStream.write(buffer, 0, byteRead);
+            total += byteRead;
+        }
+        outputStream.flush();
+        return total;
+    }
+
+    /**
+     * FileUtils.getExtension
+     */
+    static String getExtension(String name) {
+        int index = name.lastIndexOf(".");
+        if (index > 0) {
+            return name.substring(index + 1);
+        }
+        return "";
+    }
+
+    /**
+     * FileUtils.getMimeType(String)
+     */
+    static String getMimeType(String name) {
+        return mimeTypeMap.get(getExtension(name));
+    }
+
+    /**
+     * LogUtil.generateTag(每次都获取调用栈并 String.format)
+     */
+    static String generateTag() {
+        StackTraceElement caller = new Throwable().getStackTrace()[1];
+        String tag = "%s.%s(L:%d)";
+        String callerClazzName = caller.getClassName();
+        callerClazzName = callerClazzName.substring(callerClazzName.lastIndexOf(".") + 1);
+        tag = String.format(Locale.getDefault(), tag, callerClazzName, caller.getMethodName(), caller.getLineNumber());
+        tag = TextUtils.isEmpty(customTagPrefix) ? tag : customTagPrefix + ":" + tag;
+        return tag;
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.mask.sharelibrary.benchmark;
+
+import android.util.Log;
+
+import com.mask.sharelibrary.FlightRecorder;
+import com.mask.sharelibrary.LogUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单次Log调用的开销(Log 为桩实现，不包括 Logcat 本身的耗时)
+ * <p>
+ * LogUtil 的级别和tag模式是全局的，在各自的 State 的 @Setup 中设置一次，不在测量范围内修改；
+ * 每个 @Benchmark 在单独的 fork 中运行，只会初始化用到的 State。
+ * 分配量使用 gc 分析器查看(gc.alloc.rate.norm)，级别未开启的调用(Disabled，FlightRecorder 也不记录)应为 0 B/op；
+ * 级别未开启但 FlightRecorder 记录的情况(Release包的默认情况)单独测量(Recorded)。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LogBenchmark {
+
+    private static final LogUtil.Logger logger = LogUtil.getLogger(LogBenchmark.class);
+
+    /**
+     * 不捕获变量的 Supplier(单例)，只测量级别判断，不包括创建 Supplier 的开销
+     */
+    private static final LogUtil.Supplier SUPPLIER = new LogUtil.Supplier() {
+        @Override
+        public String get() {
+            return "value: " + System.nanoTime();
+        }
+    };
+
+    /**
+     * 预先装箱的参数：基本类型在调用处装箱的开销属于调用方(不论级别是否开启)
+     */
+    private final Object arg = 1024;
+
+    private int value;
+
+    @State(Scope.Benchmark)
+    public static class CallerTag {
+        @Setup
+        public void setUp() {
+            LogUtil.setMinPriority(Log.VERBOSE);
+            LogUtil.setTagMode(LogUtil.TAG_MODE_CALLER);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PrefixTag {
+        @Setup
+        public void setUp() {
+            LogUtil.setMinPriority(Log.VERBOSE);
+            LogUtil.setTagMode(LogUtil.TAG_MODE_PREFIX);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Disabled {
+        @Setup
+        public void setUp() {
+            LogUtil.setMinPriority(Log.WARN);
+            LogUtil.setTagMode(LogUtil.TAG_MODE_PREFIX);
+            FlightRecorder.setMinPriority(Log.WARN);
+        }
+
+        @TearDown
+        public void tearDown() {
+            LogUtil.setMinPriority(Log.VERBOSE);
+            FlightRecorder.setMinPriority(Log.INFO);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recorded {
+        @Setup
+        public void setUp() {
+            LogUtil.setMinPriority(Log.WARN);
+            LogUtil.setTagMode(LogUtil.TAG_MODE_PREFIX);
+            FlightRecorder.setMinPriority(Log.INFO);
+        }
+
+        @TearDown
+        public void tearDown() {
+            LogUtil.setMinPriority(Log.VERBOSE);
+        }
+    }
+
+    @Benchmark
+    public String legacyGenerateTag() {
+        return Legacy.generateTag();
+    }
+
+    @Benchmark
+    public void callerTag(CallerTag state) {
+        LogUtil.i("content");
+    }
+
+    @Benchmark
+    public void prefixTag(PrefixTag state) {
+        LogUtil.i("content");
+    }
+
+    @Benchmark
+    public void classLogger(PrefixTag state) {
+        logger.i("content");
+    }
+
+    @Benchmark
+    public void format(PrefixTag state) {
+        LogUtil.i("value: %d", ++value);
+    }
+
+    @Benchmark
+    public void disabledFormat(Disabled state) {
+        LogUtil.i("value: %d", arg);
+    }
+
+    @Benchmark
+    public void disabledFormatVarargs(Disabled state) {
+        LogUtil.i("value: %s %s %s", arg, arg, arg);// 可变参数的数组在调用处创建(逃逸分析可能消除)
+    }
+
+    @Benchmark
+    public void disabledSupplier(Disabled state) {
+        LogUtil.i(SUPPLIER);
+    }
+
+    @Benchmark
+    public void disabledIsLoggable(Disabled state) {
+        if (LogUtil.isLoggable(Log.INFO)) {
+            LogUtil.i("value: %d", ++value);
+        }
+    }
+
+    @Benchmark
+    public void recordedFormat(Recorded state) {
+        LogUtil.i("value: %d", arg);// 只写入 FlightRecorder(格式化+写入槽位)
+    }
+
+    @Benchmark
+    public void recordedSupplier(Recorded state) {
+        LogUtil.i(SUPPLIER);
+    }
+
+    @Benchmark
+    public void flightRecorder() {
+        FlightRecorder.record(Log.INFO, "x_log", "content");
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.mask.sharelibrary.benchmark;
+
+import com.mask.sharelibrary.MimeTypes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MimeType查询：每次遍历 NAME_COUNT 个文件名，结果为单个文件名的平均耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MimeTypeBenchmark {
+
+    private static final int NAME_COUNT = 100000;
+
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        names = Corpus.newNames(NAME_COUNT);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAME_COUNT)
+    public void legacyGetExtension(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(Legacy.getExtension(name));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAME_COUNT)
+    public void legacyGetMimeType(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(Legacy.getMimeType(name));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NAME_COUNT)
+    public void mimeTypes(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(MimeTypes.getMimeType(name));
+        }
+    }
+
+}
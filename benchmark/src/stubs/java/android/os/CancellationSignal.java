@@ -0,0 +1,24 @@
+package android.os;
+
+/**
+ * 桩实现(JVM 基准测试使用)
+ */
+public final class CancellationSignal {
+
+    private volatile boolean canceled;
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    public void throwIfCanceled() {
+        if (canceled) {
+            throw new OperationCanceledException();
+        }
+    }
+
+    public void cancel() {
+        canceled = true;
+    }
+
+}
@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * 桩实现(JVM 基准测试使用)
+ */
+public class OperationCanceledException extends RuntimeException {
+
+    public OperationCanceledException() {
+        this(null);
+    }
+
+    public OperationCanceledException(String message) {
+        super(message != null ? message : "The operation has been canceled.");
+    }
+
+}
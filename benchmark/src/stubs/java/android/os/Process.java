@@ -0,0 +1,17 @@
+package android.os;
+
+/**
+ * 桩实现(JVM 基准测试使用)
+ */
+public class Process {
+
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+    public static int myTid() {
+        return (int) Thread.currentThread().getId();
+    }
+
+    public static void setThreadPriority(int priority) {
+    }
+
+}
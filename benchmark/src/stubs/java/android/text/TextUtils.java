@@ -0,0 +1,12 @@
+package android.text;
+
+/**
+ * 桩实现(JVM 基准测试使用)
+ */
+public class TextUtils {
+
+    public static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.mask.sharelibrary;
+
+/**
+ * 桩实现(JVM 基准测试使用，app 中由构建生成)
+ */
+public final class BuildConfig {
+
+    public static final boolean DEBUG = true;
+
+}